@@ -0,0 +1,103 @@
+package com.redhat.emergency.response.incident.consumer;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import io.smallrye.reactive.messaging.kafka.IncomingKafkaRecord;
+import io.vertx.core.json.JsonObject;
+import io.vertx.kafka.client.consumer.impl.KafkaConsumerRecordImpl;
+import io.vertx.mutiny.kafka.client.consumer.KafkaConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Filtering and parsing of the incoming CloudEvent records, including the extraction of the CloudEvent metadata from
+ * the record headers, and building of the outgoing <code>IncidentUpdatedEvent</code> records.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncidentCommandMessageBenchmark {
+
+    private static final String COMMAND = "{\"incident\" : {\"id\" : \"5d9b2d3a-136f-414f-96ba-1b2a445fee5d\"," +
+            "\"lat\" : 34.21501, \"lon\" : -77.89012, \"status\" : \"ASSIGNED\"}}";
+
+    @Param({"true", "false"})
+    boolean latencyTrace;
+
+    private IncidentCommandMessageSource source;
+
+    private ConsumerRecord<String, String> command;
+
+    private ConsumerRecord<String, String> otherType;
+
+    private IncidentCommandMessageSource.Updated updated;
+
+    @Setup
+    public void setup() {
+        source = new IncidentCommandMessageSource();
+        source.latencyTrace = latencyTrace;
+        command = record("UpdateIncidentCommand");
+        otherType = record("IncidentReportedEvent");
+        updated = new IncidentCommandMessageSource.Updated(new JsonObject()
+                .put("id", "5d9b2d3a-136f-414f-96ba-1b2a445fee5d")
+                .put("lat", 34.21501)
+                .put("lon", -77.89012)
+                .put("numberOfPeople", 5)
+                .put("medicalNeeded", true)
+                .put("victimName", "John Doe")
+                .put("victimPhoneNumber", "(111) 123-45678")
+                .put("status", "ASSIGNED")
+                .put("timestamp", 1609358060765L),
+                new IncidentCommandMessageSource.Origin(1609358060765L, 1609358060700L, 1609358060790L));
+    }
+
+    @Benchmark
+    public Optional<JsonObject> acceptCommand() {
+        return source.acceptMessageType(incoming(command));
+    }
+
+    @Benchmark
+    public Optional<JsonObject> acceptOtherType() {
+        return source.acceptMessageType(incoming(otherType));
+    }
+
+    @Benchmark
+    public Message<String> toMessage() {
+        return source.toMessage(updated);
+    }
+
+    private static IncomingKafkaRecord<String, String> incoming(ConsumerRecord<String, String> record) {
+        return new IncomingKafkaRecord<>(new KafkaConsumerRecord<>(new KafkaConsumerRecordImpl<>(record)), null, null, true, false);
+    }
+
+    private static ConsumerRecord<String, String> record(String type) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add("ce_specversion", "1.0".getBytes());
+        headers.add("ce_id", "18cb49fe-9353-4856-9a0c-d66fe1237c86".getBytes());
+        headers.add("ce_type", type.getBytes());
+        headers.add("ce_source", "benchmark".getBytes());
+        headers.add("ce_time", "2020-12-30T19:54:20.765Z".getBytes());
+        headers.add("ce_datacontenttype", "application/json".getBytes());
+        headers.add("content-type", "application/json".getBytes());
+        return new ConsumerRecord<>("topic-incident-command", 0, 100, 1609358060765L, TimestampType.CREATE_TIME,
+                (long) ConsumerRecord.NULL_CHECKSUM, ConsumerRecord.NULL_SIZE, ConsumerRecord.NULL_SIZE,
+                "5d9b2d3a-136f-414f-96ba-1b2a445fee5d", COMMAND, headers);
+    }
+}
@@ -0,0 +1,87 @@
+package com.redhat.emergency.response.incident.service;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+import com.redhat.emergency.response.incident.entity.Incident;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Mapping between incident entities and JSON in {@link IncidentService}, and the field diff of an update.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IncidentMappingBenchmark {
+
+    private IncidentService service;
+
+    private Incident entity;
+
+    private JsonObject incident;
+
+    private JsonObject[] updates;
+
+    private int next;
+
+    @Setup
+    public void setup() {
+        service = new IncidentService();
+        service.locationBuffer = new IncidentLocationBuffer();
+        service.idGenerator = new TimeOrderedIncidentIdGenerator();
+        incident = new JsonObject()
+                .put("lat", 34.21234)
+                .put("lon", -77.89456)
+                .put("numberOfPeople", 5)
+                .put("medicalNeeded", true)
+                .put("victimName", "John Doe")
+                .put("victimPhoneNumber", "(111) 123-45678");
+        entity = service.toEntity(incident);
+        updates = new JsonObject[]{
+                new JsonObject().put("id", entity.getIncidentId()).put("lat", 34.21501).put("lon", -77.89012).put("status", "ASSIGNED"),
+                new JsonObject().put("id", entity.getIncidentId()).put("lat", 34.21234).put("lon", -77.89456).put("status", "PICKEDUP")
+        };
+    }
+
+    @Benchmark
+    public JsonObject fromEntity() {
+        return service.fromEntity(entity);
+    }
+
+    @Benchmark
+    public Incident toEntity() {
+        return service.toEntity(incident);
+    }
+
+    @Benchmark
+    public Incident applyUpdateChanged() {
+        // alternating updates: every field of the update differs from the current state
+        service.applyUpdate(entity, updates[next++ & 1]);
+        return entity;
+    }
+
+    @Benchmark
+    public Incident applyUpdateUnchanged() {
+        Incident current = new Incident();
+        current.setIncidentId(entity.getIncidentId());
+        current.setLatitude("34.21234");
+        current.setLongitude("-77.89456");
+        current.setStatus("PICKEDUP");
+        current.setReportedTime(Instant.EPOCH);
+        service.applyUpdate(current, updates[1]);
+        return current;
+    }
+}
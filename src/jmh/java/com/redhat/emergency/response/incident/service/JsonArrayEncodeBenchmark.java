@@ -0,0 +1,56 @@
+package com.redhat.emergency.response.incident.service;
+
+import java.util.concurrent.TimeUnit;
+
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Encoding of the incident lists returned by the REST resource, from 10 to 1M incidents.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class JsonArrayEncodeBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    int size;
+
+    private JsonArray incidents;
+
+    @Setup
+    public void setup() {
+        incidents = new JsonArray();
+        for (int i = 0; i < size; i++) {
+            incidents.add(new JsonObject()
+                    .put("id", String.format("%016x-%04x", i, i & 0xffff))
+                    .put("lat", 34.2 + (i % 1000) / 10000.0)
+                    .put("lon", -77.9 + (i % 1000) / 10000.0)
+                    .put("medicalNeeded", i % 2 == 0)
+                    .put("numberOfPeople", i % 10)
+                    .put("victimName", "Victim " + i)
+                    .put("victimPhoneNumber", "(111) 123-45678")
+                    .put("status", "REPORTED")
+                    .put("timestamp", 1609358060765L + i));
+        }
+    }
+
+    @Benchmark
+    public String encode() {
+        return incidents.encode();
+    }
+}
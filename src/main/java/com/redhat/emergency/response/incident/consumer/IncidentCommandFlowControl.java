@@ -0,0 +1,157 @@
+package com.redhat.emergency.response.incident.consumer;
+
+import java.time.Instant;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.reactive.messaging.kafka.IncomingKafkaRecordMetadata;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Flow control for the incident command consumers.
+ * <p>
+ * Records are admitted while the number of records in flight stays under the high watermark and the database
+ * latency stays under its threshold. Above that, admission is withheld: the consumers stop requesting records and
+ * the Kafka connector stops fetching from the partitions. Admission resumes once the in-flight count is back under
+ * the low watermark.
+ */
+@ApplicationScoped
+public class IncidentCommandFlowControl {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentCommandFlowControl.class);
+
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "incident.command.flow.high-watermark", defaultValue = "64")
+    int highWatermark;
+
+    @ConfigProperty(name = "incident.command.flow.low-watermark", defaultValue = "16")
+    int lowWatermark;
+
+    @ConfigProperty(name = "incident.command.flow.latency-high-ms", defaultValue = "500")
+    long latencyHigh;
+
+    @ConfigProperty(name = "incident.command.flow.latency-low-ms", defaultValue = "100")
+    long latencyLow;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private final Queue<CompletableFuture<Void>> waiting = new ConcurrentLinkedQueue<>();
+
+    private volatile double latency;
+
+    private volatile long lag;
+
+    private volatile boolean paused;
+
+    private long pausedSince;
+
+    private Timer pauseTimer;
+
+    void onStart(@Observes StartupEvent e) {
+        String name = "incident.command.flow";
+        Gauge.builder(name + ".inflight", inFlight, AtomicInteger::get).register(meterRegistry);
+        Gauge.builder(name + ".lag", this, f -> f.lag).baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder(name + ".latency", this, f -> f.latency).baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder(name + ".paused", this, f -> f.paused ? 1 : 0).register(meterRegistry);
+        pauseTimer = Timer.builder(name + ".pause").register(meterRegistry);
+    }
+
+    /**
+     * Returns a stage that completes once the message may be processed.
+     * Every admitted message must be followed by a call to {@link #release(long)}.
+     */
+    public CompletionStage<Void> admit(Message<?> message) {
+        message.getMetadata(IncomingKafkaRecordMetadata.class)
+                .map(IncomingKafkaRecordMetadata::getTimestamp)
+                .filter(t -> t.toEpochMilli() > 0)
+                .ifPresent(t -> lag = Instant.now().toEpochMilli() - t.toEpochMilli());
+        CompletableFuture<Void> admission = new CompletableFuture<>();
+        waiting.add(admission);
+        drain();
+        return admission;
+    }
+
+    /**
+     * Releases a processed message, sampling the database latency of its processing.
+     */
+    public void release(long latencyNanos) {
+        double millis = TimeUnit.NANOSECONDS.toMicros(latencyNanos) / 1000.0;
+        synchronized (this) {
+            inFlight.decrementAndGet();
+            latency = latency + LATENCY_SMOOTHING * (millis - latency);
+        }
+        drain();
+    }
+
+    /**
+     * Releases a message that never reached the database, such as an ignored or rejected one, without a latency
+     * sample.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+        drain();
+    }
+
+    public boolean isPaused() {
+        return paused;
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Lag of the last admitted record behind its Kafka timestamp, in milliseconds.
+     */
+    public long lag() {
+        return lag;
+    }
+
+    private synchronized void drain() {
+        if (paused && canResume()) {
+            paused = false;
+            long pausedFor = System.nanoTime() - pausedSince;
+            pauseTimer.record(pausedFor, TimeUnit.NANOSECONDS);
+            log.info("Resuming incident command consumption after " + TimeUnit.NANOSECONDS.toMillis(pausedFor) + " ms. In flight: " + inFlight.get());
+        }
+        while (!paused && !waiting.isEmpty()) {
+            if (mustPause()) {
+                paused = true;
+                pausedSince = System.nanoTime();
+                log.warn("Pausing incident command consumption. In flight: " + inFlight.get() + ", database latency: " + Math.round(latency) + " ms");
+                break;
+            }
+            inFlight.incrementAndGet();
+            waiting.poll().complete(null);
+        }
+    }
+
+    private boolean mustPause() {
+        int current = inFlight.get();
+        return current >= highWatermark || (current > 0 && latency >= latencyHigh);
+    }
+
+    private boolean canResume() {
+        int current = inFlight.get();
+        // With nothing in flight, the latency can't recover: let a record through to probe the database.
+        return current == 0 || (current <= lowWatermark && latency <= latencyLow);
+    }
+}
@@ -1,21 +1,38 @@
 package com.redhat.emergency.response.incident.consumer;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
+import com.redhat.emergency.response.incident.metrics.PipelineMetrics;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler;
 import com.redhat.emergency.response.incident.service.IncidentService;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.operators.multi.processors.UnicastProcessor;
 import io.smallrye.reactive.messaging.ce.IncomingCloudEventMetadata;
 import io.smallrye.reactive.messaging.ce.OutgoingCloudEventMetadata;
+import io.smallrye.reactive.messaging.ce.OutgoingCloudEventMetadataBuilder;
 import io.smallrye.reactive.messaging.kafka.IncomingKafkaRecord;
 import io.smallrye.reactive.messaging.kafka.KafkaRecord;
 import io.vertx.core.json.JsonObject;
+import io.vertx.kafka.client.consumer.impl.KafkaConsumerRecordImpl;
+import io.vertx.mutiny.kafka.client.consumer.KafkaConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
@@ -31,34 +48,136 @@ public class IncidentCommandMessageSource {
     private static final String UPDATE_INCIDENT_COMMAND = "UpdateIncidentCommand";
     private static final String[] ACCEPTED_MESSAGE_TYPES = {UPDATE_INCIDENT_COMMAND};
 
-    private final UnicastProcessor<JsonObject> processor = UnicastProcessor.create();
+    /**
+     * CloudEvent extension of the outgoing events tracing the latency of the command they result from.
+     */
+    static final String LATENCY_TRACE = "latencytrace";
+
+    /**
+     * Metadata common to the outgoing events, built once, and at build time in a native image. Its id is replaced by
+     * a new one for every event.
+     */
+    private static final OutgoingCloudEventMetadata<Object> UPDATED_EVENT = OutgoingCloudEventMetadata.builder()
+            .withType("IncidentUpdatedEvent").build();
+
+    private final UnicastProcessor<Updated> processor = UnicastProcessor.create();
+
+    private final AtomicInteger backlog = new AtomicInteger();
+
+    /**
+     * Last command of every incident with commands in flight, for the next one to be processed after it.
+     */
+    private final Map<String, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
 
     @Inject
     IncidentService incidentService;
 
+    @Inject
+    IncidentCommandRetryMessageSource retrySource;
+
+    @Inject
+    IncidentCommandFlowControl flowControl;
+
+    @Inject
+    IncidentPriorityScheduler scheduler;
+
+    @Inject
+    PipelineMetrics metrics;
+
+    @ConfigProperty(name = "incident.command.latency-trace.enabled", defaultValue = "false")
+    boolean latencyTrace;
+
+    /**
+     * Consumes a command. The returned stage completes once the command is admitted by the flow control, so that
+     * the next record is requested while this one is processed; the stage it holds completes once the command is
+     * processed and its record acknowledged. Commands of the same incident are processed in the order of their
+     * records.
+     */
     @Incoming("incident-command")
     @Acknowledgment(Acknowledgment.Strategy.MANUAL)
     public CompletionStage<CompletionStage<Void>> processMessage(IncomingKafkaRecord<String, String> message) {
 
-        return CompletableFuture.supplyAsync(() -> {
-            try {
-                acceptMessageType(message).ifPresent(this::processUpdateIncidentCommand);
-            } catch (Exception e) {
-                log.error("Error processing msg " + message.getPayload(), e);
+        long received = System.nanoTime();
+        Origin origin = Origin.of(message);
+        if (origin.recordTimestamp > 0) {
+            metrics.recordLatency(PipelineMetrics.Latency.LAG, origin.recordTimestamp);
+        }
+        return flowControl.admit(message).thenApply(v -> {
+            Optional<JsonObject> command = acceptMessageType(message);
+            if (command.isEmpty()) {
+                flowControl.release();
+                return message.ack();
             }
-            return message.ack();
+            String incidentId = command.get().getJsonObject("incident").getString("id");
+            CompletableFuture<Void> processed = pending.compute(incidentId, (id, previous) -> previous == null
+                    ? process(command.get(), message, origin, received)
+                    : previous.thenCompose(p -> process(command.get(), message, origin, received)));
+            processed.whenComplete((p, t) -> pending.remove(incidentId, processed));
+            return processed;
         });
     }
 
-    private void processUpdateIncidentCommand(JsonObject json) {
+    /**
+     * Processes an admitted command on the write bulkhead, releasing it from the flow control once done. The returned
+     * stage completes, without failing, once the record is acknowledged or handed over to the retry topic.
+     */
+    private CompletableFuture<Void> process(JsonObject command, IncomingKafkaRecord<String, String> message, Origin origin, long received) {
+        IncidentPriorityScheduler.Priority priority = scheduler.priorityOf(command.getJsonObject("incident"));
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                try {
+                    processUpdateIncidentCommand(command, origin);
+                } catch (Exception e) {
+                    log.error("Error processing msg " + message.getPayload(), e);
+                    retrySource.retry(command, e, message);
+                    return CompletableFuture.<Void>completedFuture(null);
+                } finally {
+                    flowControl.release(System.nanoTime() - start);
+                }
+                return message.ack();
+            }, scheduler.executor(IncidentPriorityScheduler.Bulkhead.WRITE, priority))
+                    .thenCompose(ack -> ack)
+                    .exceptionally(t -> {
+                        log.warn("Acknowledgement of the command for incident '" + command.getJsonObject("incident").getString("id") + "' failed: " + t.getMessage());
+                        return null;
+                    });
+        } catch (RejectedExecutionException e) {
+            // the write bulkhead is saturated: the command goes through the retry topic rather than being lost
+            metrics.record(PipelineMetrics.Stage.COMMAND, PipelineMetrics.Action.UPDATE_INCIDENT_COMMAND, PipelineMetrics.Outcome.REJECTED, received);
+            log.warn("Command for incident '" + command.getJsonObject("incident").getString("id") + "' rejected: " + e.getMessage());
+            flowControl.release();
+            retrySource.retry(command, e, message);
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    void processUpdateIncidentCommand(JsonObject json) {
+        processUpdateIncidentCommand(json, null);
+    }
+
+    /**
+     * Processes the command, carrying the origin of its record, if known, to the resulting event.
+     */
+    void processUpdateIncidentCommand(JsonObject json, Origin origin) {
 
-        JsonObject incident = json.getJsonObject("incident");
-        log.debug("Processing '" + UPDATE_INCIDENT_COMMAND + "' message for incident '" + incident.getString("id") + "'");
-        JsonObject updated = incidentService.updateIncident(incident);
-        processor.onNext(updated);
+        long start = System.nanoTime();
+        PipelineMetrics.Outcome outcome = PipelineMetrics.Outcome.FAILURE;
+        try {
+            JsonObject incident = json.getJsonObject("incident");
+            log.debug("Processing '" + UPDATE_INCIDENT_COMMAND + "' message for incident '" + incident.getString("id") + "'");
+            JsonObject updated = incidentService.updateIncident(incident);
+            if (updated != null) {
+                backlog.incrementAndGet();
+                processor.onNext(new Updated(updated, origin));
+            }
+            outcome = PipelineMetrics.Outcome.SUCCESS;
+        } finally {
+            metrics.record(PipelineMetrics.Stage.COMMAND, PipelineMetrics.Action.UPDATE_INCIDENT_COMMAND, outcome, start);
+        }
     }
 
-    private Optional<JsonObject> acceptMessageType(IncomingKafkaRecord<String, String> message) {
+    Optional<JsonObject> acceptMessageType(IncomingKafkaRecord<String, String> message) {
         try {
             Optional<IncomingCloudEventMetadata> metadata = message.getMetadata(IncomingCloudEventMetadata.class);
             if (metadata.isEmpty()) {
@@ -90,15 +209,125 @@ public class IncidentCommandMessageSource {
 
     }
 
+    /**
+     * Events emitted and not yet acknowledged by the broker: the unbounded processor queue plus the records in flight.
+     */
+    public int backlog() {
+        return backlog.get();
+    }
+
+    /**
+     * Filters synthetic incoming records and builds the outgoing event of the incident, without side effects: lets the
+     * JIT compile the message paths before the first records come in.
+     */
+    public void warmUp(JsonObject incident) {
+        for (String type : new String[]{UPDATE_INCIDENT_COMMAND, "IncidentReportedEvent"}) {
+            IncomingKafkaRecord<String, String> record = syntheticRecord(type, incident);
+            acceptMessageType(record);
+            toMessage(new Updated(incident, Origin.of(record)));
+        }
+    }
+
+    private static IncomingKafkaRecord<String, String> syntheticRecord(String type, JsonObject incident) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add("ce_specversion", "1.0".getBytes(StandardCharsets.UTF_8));
+        headers.add("ce_id", UUID.randomUUID().toString().getBytes(StandardCharsets.UTF_8));
+        headers.add("ce_type", type.getBytes(StandardCharsets.UTF_8));
+        headers.add("ce_source", "warm-up".getBytes(StandardCharsets.UTF_8));
+        headers.add("ce_time", Instant.now().toString().getBytes(StandardCharsets.UTF_8));
+        headers.add("ce_datacontenttype", "application/json".getBytes(StandardCharsets.UTF_8));
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("warm-up", 0, 0, System.currentTimeMillis(),
+                TimestampType.CREATE_TIME, (long) ConsumerRecord.NULL_CHECKSUM, ConsumerRecord.NULL_SIZE, ConsumerRecord.NULL_SIZE,
+                incident.getString("id"), new JsonObject().put("incident", incident).encode(), headers);
+        return new IncomingKafkaRecord<>(new KafkaConsumerRecord<>(new KafkaConsumerRecordImpl<>(record)), null, null, true, false);
+    }
+
     @Outgoing("incident-event")
     public Multi<Message<String>> source() {
         return processor.onItem().transform(this::toMessage);
     }
 
-    private Message<String> toMessage(JsonObject incident) {
+    Message<String> toMessage(Updated updated) {
+        JsonObject incident = updated.incident;
+        Origin origin = updated.origin;
         log.debug("IncidentUpdatedEvent: " + incident.toString());
+        long start = System.nanoTime();
+        ZonedDateTime now = OffsetDateTime.now().toZonedDateTime();
+        OutgoingCloudEventMetadataBuilder<Object> cloudEvent = OutgoingCloudEventMetadata.from(UPDATED_EVENT)
+                .withId(UUID.randomUUID().toString()).withTimestamp(now);
+        if (latencyTrace && origin != null) {
+            cloudEvent.withExtension(LATENCY_TRACE, origin.trace(now.toInstant().toEpochMilli()));
+        }
         return KafkaRecord.of(incident.getString("id"), incident.toString())
-                .addMetadata(OutgoingCloudEventMetadata.builder().withType("IncidentUpdatedEvent")
-                        .withTimestamp(OffsetDateTime.now().toZonedDateTime()).build());
+                .withAck(() -> {
+                    backlog.decrementAndGet();
+                    metrics.record(PipelineMetrics.Stage.PUBLISH, PipelineMetrics.Action.INCIDENT_UPDATED_EVENT, PipelineMetrics.Outcome.SUCCESS, start);
+                    if (origin != null && origin.start() > 0) {
+                        metrics.recordLatency(PipelineMetrics.Latency.END_TO_END, origin.start());
+                    }
+                    return CompletableFuture.completedFuture(null);
+                })
+                .withNack(t -> {
+                    backlog.decrementAndGet();
+                    metrics.record(PipelineMetrics.Stage.PUBLISH, PipelineMetrics.Action.INCIDENT_UPDATED_EVENT, PipelineMetrics.Outcome.FAILURE, start);
+                    return CompletableFuture.completedFuture(null);
+                })
+                .addMetadata(cloudEvent.build());
+    }
+
+    /**
+     * Epoch timestamps of an incoming command, 0 when unknown: the timestamp of its Kafka record, the time of its
+     * CloudEvent, and its consumption.
+     */
+    static final class Origin {
+
+        final long recordTimestamp;
+
+        final long eventTime;
+
+        final long consumed;
+
+        Origin(long recordTimestamp, long eventTime, long consumed) {
+            this.recordTimestamp = recordTimestamp;
+            this.eventTime = eventTime;
+            this.consumed = consumed;
+        }
+
+        static Origin of(IncomingKafkaRecord<String, String> message) {
+            long consumed = System.currentTimeMillis();
+            long recordTimestamp = message.getTimestamp() == null ? 0 : Math.max(0, message.getTimestamp().toEpochMilli());
+            long eventTime = 0;
+            try {
+                eventTime = message.getMetadata(IncomingCloudEventMetadata.class)
+                        .flatMap(m -> ((IncomingCloudEventMetadata<?>) m).getTimeStamp())
+                        .map(t -> t.toInstant().toEpochMilli()).orElse(0L);
+            } catch (Exception e) {
+                // an invalid CloudEvent is rejected later on
+            }
+            return new Origin(recordTimestamp, eventTime, consumed);
+        }
+
+        /**
+         * Start of the end-to-end latency: the record timestamp, or the CloudEvent time for a record without one.
+         */
+        long start() {
+            return recordTimestamp > 0 ? recordTimestamp : eventTime;
+        }
+
+        String trace(long published) {
+            return "record=" + recordTimestamp + ",event=" + eventTime + ",consumed=" + consumed + ",published=" + published;
+        }
+    }
+
+    static final class Updated {
+
+        final JsonObject incident;
+
+        final Origin origin;
+
+        Updated(JsonObject incident, Origin origin) {
+            this.incident = incident;
+            this.origin = origin;
+        }
     }
 }
@@ -0,0 +1,211 @@
+package com.redhat.emergency.response.incident.consumer;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.operators.multi.processors.UnicastProcessor;
+import io.smallrye.reactive.messaging.kafka.KafkaRecord;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
+import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.eclipse.microprofile.reactive.messaging.Outgoing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Retries failed incident commands off the main <code>incident-command</code> consumer.
+ * Every attempt goes to its own retry topic (<code>&lt;topic&gt;-1</code>, <code>&lt;topic&gt;-2</code>, ...)
+ * with an exponentially growing backoff. Poison and exhausted commands end up on the dead-letter topic.
+ * <p>
+ * Records waiting for their backoff are not in flight for the flow control of the command consumers: they are
+ * admitted once due, so that a burst of failures doesn't take the in-flight budget of the main consumer. At most
+ * <code>incident.command.retry.max-delayed</code> of them are held in memory.
+ */
+@ApplicationScoped
+public class IncidentCommandRetryMessageSource {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentCommandRetryMessageSource.class);
+
+    private final UnicastProcessor<Message<String>> retryProcessor = UnicastProcessor.create();
+
+    private final UnicastProcessor<Message<String>> deadLetterProcessor = UnicastProcessor.create();
+
+    @Inject
+    IncidentCommandMessageSource source;
+
+    @Inject
+    IncidentCommandFlowControl flowControl;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "incident.command.retry.topic", defaultValue = "topic-incident-command-retry")
+    String retryTopic;
+
+    @ConfigProperty(name = "incident.command.retry.max-attempts", defaultValue = "3")
+    int maxAttempts;
+
+    @ConfigProperty(name = "incident.command.retry.initial-backoff-ms", defaultValue = "1000")
+    long initialBackoff;
+
+    @ConfigProperty(name = "incident.command.retry.backoff-multiplier", defaultValue = "4")
+    int backoffMultiplier;
+
+    @ConfigProperty(name = "incident.command.retry.max-delayed", defaultValue = "256")
+    int maxDelayed;
+
+    private final Queue<CompletableFuture<Void>> waitingForSlot = new ArrayDeque<>();
+
+    private int delayed;
+
+    private Counter scheduledCounter;
+
+    private Counter recoveredCounter;
+
+    private Counter deadLetteredCounter;
+
+    void onStart(@Observes StartupEvent e) {
+        String name = "incident.command.retry";
+        scheduledCounter = Counter.builder(name).tag("outcome", "scheduled").register(meterRegistry);
+        recoveredCounter = Counter.builder(name).tag("outcome", "recovered").register(meterRegistry);
+        deadLetteredCounter = Counter.builder(name).tag("outcome", "dead-lettered").register(meterRegistry);
+        Gauge.builder(name + ".delayed", this, r -> r.delayed()).register(meterRegistry);
+    }
+
+    /**
+     * Hands a command that failed on the main consumer over to the first retry tier.
+     * The original message is acknowledged once the retry (or dead-letter) record has been written.
+     */
+    public void retry(JsonObject command, Throwable failure, Message<?> original) {
+        escalate(command, 0, failure, original::ack);
+    }
+
+    @Incoming("incident-command-retry-in")
+    @Acknowledgment(Acknowledgment.Strategy.MANUAL)
+    public CompletionStage<Void> processRetry(Message<String> message) {
+        JsonObject envelope;
+        try {
+            envelope = new JsonObject(message.getPayload());
+        } catch (DecodeException e) {
+            log.warn("Unexpected retry message is ignored: " + message.getPayload());
+            return message.ack();
+        }
+        // The delay is applied per record and does not hold back the channel: records of a later tier never block
+        // records of an earlier tier. The offset is committed when the record is acked. A delayed record holds a slot
+        // until it is admitted by the flow control, which bounds how many of them are held in memory.
+        return reserve().thenAccept(v -> {
+            long delay = Math.max(0, envelope.getLong("due", 0L) - System.currentTimeMillis());
+            Uni<JsonObject> due = Uni.createFrom().item(envelope);
+            if (delay > 0) {
+                due = due.onItem().delayIt().by(Duration.ofMillis(delay));
+            }
+            due.onItem().transformToUni(e -> Uni.createFrom().completionStage(flowControl.admit(message)))
+                    .onItem().invoke(admitted -> free())
+                    .emitOn(Infrastructure.getDefaultWorkerPool())
+                    .subscribe().with(admitted -> attempt(envelope, message), t -> {
+                        flowControl.release();
+                        message.nack(t);
+                    });
+        });
+    }
+
+    private synchronized CompletionStage<Void> reserve() {
+        if (delayed < maxDelayed) {
+            delayed++;
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> slot = new CompletableFuture<>();
+        waitingForSlot.add(slot);
+        return slot;
+    }
+
+    private void free() {
+        CompletableFuture<Void> next;
+        synchronized (this) {
+            next = waitingForSlot.poll();
+            if (next == null) {
+                delayed--;
+            }
+        }
+        if (next != null) {
+            next.complete(null);
+        }
+    }
+
+    synchronized int delayed() {
+        return delayed;
+    }
+
+    private void attempt(JsonObject envelope, Message<String> message) {
+        JsonObject command = envelope.getJsonObject("command");
+        int attempt = envelope.getInteger("attempt", maxAttempts);
+        long start = System.nanoTime();
+        try {
+            source.processUpdateIncidentCommand(command);
+            recoveredCounter.increment();
+            message.ack();
+        } catch (Exception e) {
+            escalate(command, attempt, e, message::ack);
+        } finally {
+            flowControl.release(System.nanoTime() - start);
+        }
+    }
+
+    private void escalate(JsonObject command, int attempt, Throwable failure, Supplier<CompletionStage<Void>> ack) {
+        String key = command.getJsonObject("incident", new JsonObject()).getString("id");
+        JsonObject envelope = new JsonObject().put("command", command).put("error", String.valueOf(rootCause(failure)));
+        if (attempt >= maxAttempts || !isTransient(failure)) {
+            log.error("Incident command for incident '" + key + "' failed after " + attempt + " retries. Sending to dead-letter topic", failure);
+            deadLetteredCounter.increment();
+            deadLetterProcessor.onNext(KafkaRecord.of(key, envelope.put("attempt", attempt).encode()).withAck(ack));
+            return;
+        }
+        int next = attempt + 1;
+        long backoff = initialBackoff * (long) Math.pow(backoffMultiplier, attempt);
+        log.warn("Incident command for incident '" + key + "' failed. Retry " + next + " of " + maxAttempts + " in " + backoff + " ms: " + rootCause(failure));
+        scheduledCounter.increment();
+        envelope.put("attempt", next).put("due", System.currentTimeMillis() + backoff);
+        retryProcessor.onNext(KafkaRecord.of(retryTopic + "-" + next, key, envelope.encode()).withAck(ack));
+    }
+
+    private boolean isTransient(Throwable failure) {
+        Throwable cause = rootCause(failure);
+        return !(cause instanceof ClassCastException || cause instanceof IllegalArgumentException
+                || cause instanceof DecodeException || cause instanceof NullPointerException);
+    }
+
+    private Throwable rootCause(Throwable t) {
+        Throwable cause = t;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    @Outgoing("incident-command-retry")
+    public Multi<Message<String>> retrySource() {
+        return retryProcessor;
+    }
+
+    @Outgoing("incident-command-dlq")
+    public Multi<Message<String>> deadLetterSource() {
+        return deadLetterProcessor;
+    }
+}
@@ -4,6 +4,7 @@ import java.time.Instant;
 import javax.persistence.Access;
 import javax.persistence.AccessType;
 import javax.persistence.Basic;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
@@ -11,23 +12,38 @@ import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.NamedQueries;
 import javax.persistence.NamedQuery;
+import javax.persistence.QueryHint;
 import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
 import javax.persistence.Version;
 
+import org.hibernate.annotations.QueryHints;
+
 @Entity
+@Cacheable
 @Access(AccessType.FIELD)
 @SequenceGenerator(name="ReportedIncidentSeq", sequenceName="REPORTED_INCIDENT_SEQ", allocationSize = 10)
 @Table(name = "reported_incident")
 @NamedQueries({
         @NamedQuery(name = "Incident.findAll", query = "SELECT i from Incident i"),
-        @NamedQuery(name = "Incident.byIncidentId", query = "SELECT i FROM Incident i WHERE i.incidentId = :incidentId"),
+        @NamedQuery(name = "Incident.byIncidentId", query = "SELECT i FROM Incident i WHERE i.incidentId = :incidentId",
+                hints = @QueryHint(name = QueryHints.CACHEABLE, value = "true")),
         @NamedQuery(name = "Incident.byStatus", query = "SELECT i from Incident i WHERE i.status = :status"),
         @NamedQuery(name = "Incident.findByName", query = "SELECT i from Incident i WHERE LOWER(i.victimName) LIKE :pattern"),
-        @NamedQuery(name = "Incident.deleteAll", query = "DELETE FROM Incident")
+        @NamedQuery(name = "Incident.viewAll", query = "SELECT " + Incident.VIEW + " FROM Incident i"),
+        @NamedQuery(name = "Incident.viewByStatus", query = "SELECT " + Incident.VIEW + " FROM Incident i WHERE i.status = :status"),
+        @NamedQuery(name = "Incident.viewByName", query = "SELECT " + Incident.VIEW + " FROM Incident i WHERE LOWER(i.victimName) LIKE :pattern"),
+        @NamedQuery(name = "Incident.deleteAll", query = "DELETE FROM Incident"),
+        @NamedQuery(name = "Incident.archivable", query = "SELECT i.id FROM Incident i WHERE i.status IN :statuses AND i.reportedTime < :before ORDER BY i.id"),
+        @NamedQuery(name = "Incident.deleteByIds", query = "DELETE FROM Incident i WHERE i.id IN :ids"),
+        @NamedQuery(name = "Incident.reportedBefore", query = "SELECT i.id FROM Incident i WHERE i.id > :after "
+                + "AND (i.reportedTime < :before OR i.reportedTime IS NULL) ORDER BY i.id")
 })
 public class Incident {
 
+    static final String VIEW = "new com.redhat.emergency.response.incident.model.IncidentView(i.incidentId, i.latitude, i.longitude, "
+            + "i.numberOfPeople, i.medicalNeeded, i.victimName, i.victimPhoneNumber, i.reportedTime, i.status)";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO, generator="ReportedIncidentSeq")
     private long id;
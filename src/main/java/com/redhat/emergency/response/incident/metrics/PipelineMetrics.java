@@ -0,0 +1,182 @@
+package com.redhat.emergency.response.incident.metrics;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Latency of every stage an incident request or command goes through, as percentile histograms tagged by stage,
+ * action and outcome (<code>incident.pipeline</code>), per query (<code>incident.query</code>), and the wall clock
+ * {@link Latency} of the incident commands between Kafka topics.
+ * <p>
+ * Recording is meant for the hot path: the caller keeps the start time as a <code>System.nanoTime()</code> value,
+ * and the timers are looked up by enum ordinals in an array, registered on first use only. Nothing is allocated
+ * once a timer exists.
+ */
+@ApplicationScoped
+public class PipelineMetrics {
+
+    public enum Stage {
+        /** REST request, from its arrival to its response. */
+        HTTP,
+        /** Event bus request, from its sending to its dispatch to a bulkhead. */
+        TRANSIT,
+        /** Wait in the bulkhead queue. */
+        WAIT,
+        /** Processing of an event bus request. */
+        HANDLER,
+        /** Encoding of a REST response. */
+        SERIALIZATION,
+        /** Processing of an incident command from Kafka. */
+        COMMAND,
+        /** Outgoing Kafka record, from its emission to its acknowledgement by the broker. */
+        PUBLISH
+    }
+
+    /**
+     * The incident service requests and the Kafka messages, with the traits the bulkhead, the priority and the
+     * concurrency limit of a request are derived from.
+     */
+    public enum Action {
+        INCIDENTS("incidents", Trait.LIST), INCIDENT_BY_ID("incidentById"),
+        INCIDENTS_BY_STATUS("incidentsByStatus", Trait.LIST), INCIDENTS_BY_NAME("incidentsByName", Trait.LIST),
+        CREATE_INCIDENT("createIncident", Trait.WRITE), RESET("reset", Trait.WRITE, Trait.ADMIN),
+        RESET_STATUS("resetStatus", Trait.ADMIN), UPDATE_INCIDENT_COMMAND("UpdateIncidentCommand", Trait.WRITE),
+        INCIDENT_REPORTED_EVENT("IncidentReportedEvent"), INCIDENT_UPDATED_EVENT("IncidentUpdatedEvent"),
+        UNKNOWN("unknown");
+
+        public enum Trait {
+            /** Returns a list of incidents. */
+            LIST,
+            /** Writes incidents. */
+            WRITE,
+            /** Administers the service rather than serving its clients. */
+            ADMIN
+        }
+
+        private static final Map<String, Action> BY_TAG = new HashMap<>();
+
+        static {
+            for (Action action : values()) {
+                BY_TAG.put(action.tag, action);
+            }
+        }
+
+        private final String tag;
+
+        private final Set<Trait> traits;
+
+        Action(String tag, Trait... traits) {
+            this.tag = tag;
+            this.traits = traits.length == 0 ? EnumSet.noneOf(Trait.class) : EnumSet.copyOf(Arrays.asList(traits));
+        }
+
+        /**
+         * @return the action of the <code>action</code> header of an event bus request, or {@link #UNKNOWN}
+         */
+        public static Action of(String action) {
+            return action == null ? UNKNOWN : BY_TAG.getOrDefault(action, UNKNOWN);
+        }
+
+        public boolean is(Trait trait) {
+            return traits.contains(trait);
+        }
+    }
+
+    public enum Outcome {
+        SUCCESS, FAILURE, REJECTED
+    }
+
+    public enum Latency {
+        /** Incident command, from its record timestamp to its consumption. */
+        LAG("incident.command.lag"),
+        /** Incident command, from its record timestamp to the acknowledgement of the resulting event. */
+        END_TO_END("incident.command.e2e");
+
+        private final String name;
+
+        Latency(String name) {
+            this.name = name;
+        }
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    private static final Action[] ACTIONS = Action.values();
+
+    private static final Outcome[] OUTCOMES = Outcome.values();
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private final Timer[] timers = new Timer[STAGES.length * ACTIONS.length * OUTCOMES.length];
+
+    private final Map<String, Timer[]> queryTimers = new ConcurrentHashMap<>();
+
+    private final Timer[] latencyTimers = new Timer[Latency.values().length];
+
+    /**
+     * Records the time elapsed since <code>startNanos</code>, a <code>System.nanoTime()</code> value.
+     */
+    public void record(Stage stage, Action action, Outcome outcome, long startNanos) {
+        long duration = System.nanoTime() - startNanos;
+        int index = (stage.ordinal() * ACTIONS.length + action.ordinal()) * OUTCOMES.length + outcome.ordinal();
+        Timer timer = timers[index];
+        if (timer == null) {
+            // concurrent registrations of the same timer return the same meter
+            timer = histogram(Timer.builder("incident.pipeline")
+                    .tag("stage", stage.name().toLowerCase())
+                    .tag("action", action.tag)
+                    .tag("outcome", outcome.name().toLowerCase()));
+            timers[index] = timer;
+        }
+        timer.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the time elapsed since <code>startNanos</code> running the named query.
+     */
+    public void recordQuery(String query, Outcome outcome, long startNanos) {
+        long duration = System.nanoTime() - startNanos;
+        Timer[] byOutcome = queryTimers.computeIfAbsent(query, q -> new Timer[OUTCOMES.length]);
+        Timer timer = byOutcome[outcome.ordinal()];
+        if (timer == null) {
+            timer = histogram(Timer.builder("incident.query")
+                    .tag("query", query)
+                    .tag("outcome", outcome.name().toLowerCase()));
+            byOutcome[outcome.ordinal()] = timer;
+        }
+        timer.record(duration, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Records the time elapsed since <code>originMillis</code>, an epoch timestamp set by another host. Negative
+     * values caused by clock skew between the hosts are recorded as 0.
+     */
+    public void recordLatency(Latency latency, long originMillis) {
+        long duration = Math.max(0, System.currentTimeMillis() - originMillis);
+        Timer timer = latencyTimers[latency.ordinal()];
+        if (timer == null) {
+            timer = histogram(Timer.builder(latency.name));
+            latencyTimers[latency.ordinal()] = timer;
+        }
+        timer.record(duration, TimeUnit.MILLISECONDS);
+    }
+
+    private Timer histogram(Timer.Builder builder) {
+        return builder.publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofMillis(1))
+                .maximumExpectedValue(Duration.ofSeconds(30))
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,38 @@
+package com.redhat.emergency.response.incident.model;
+
+/**
+ * Latest known position of an incident, waiting in the write-behind buffer to be written to the database.
+ */
+public final class IncidentLocation {
+
+    private final long id;
+
+    private final String incidentId;
+
+    private final String latitude;
+
+    private final String longitude;
+
+    public IncidentLocation(long id, String incidentId, String latitude, String longitude) {
+        this.id = id;
+        this.incidentId = incidentId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getIncidentId() {
+        return incidentId;
+    }
+
+    public String getLatitude() {
+        return latitude;
+    }
+
+    public String getLongitude() {
+        return longitude;
+    }
+}
@@ -0,0 +1,81 @@
+package com.redhat.emergency.response.incident.model;
+
+import java.time.Instant;
+
+import io.quarkus.runtime.annotations.RegisterForReflection;
+
+/**
+ * Immutable, read-only view of an incident, loaded by the <code>Incident.view*</code> projection queries
+ * without going through the persistence context. Registered for reflection, as Hibernate instantiates it through its
+ * constructor in a native image too.
+ */
+@RegisterForReflection
+public final class IncidentView {
+
+    private final String incidentId;
+
+    private final String latitude;
+
+    private final String longitude;
+
+    private final int numberOfPeople;
+
+    private final boolean medicalNeeded;
+
+    private final String victimName;
+
+    private final String victimPhoneNumber;
+
+    private final long timestamp;
+
+    private final String status;
+
+    public IncidentView(String incidentId, String latitude, String longitude, int numberOfPeople, boolean medicalNeeded,
+                        String victimName, String victimPhoneNumber, Instant reportedTime, String status) {
+        this.incidentId = incidentId;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.numberOfPeople = numberOfPeople;
+        this.medicalNeeded = medicalNeeded;
+        this.victimName = victimName;
+        this.victimPhoneNumber = victimPhoneNumber;
+        this.timestamp = reportedTime.toEpochMilli();
+        this.status = status;
+    }
+
+    public String getIncidentId() {
+        return incidentId;
+    }
+
+    public String getLatitude() {
+        return latitude;
+    }
+
+    public String getLongitude() {
+        return longitude;
+    }
+
+    public int getNumberOfPeople() {
+        return numberOfPeople;
+    }
+
+    public boolean isMedicalNeeded() {
+        return medicalNeeded;
+    }
+
+    public String getVictimName() {
+        return victimName;
+    }
+
+    public String getVictimPhoneNumber() {
+        return victimPhoneNumber;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+}
@@ -0,0 +1,61 @@
+package com.redhat.emergency.response.incident.repository;
+
+import java.util.concurrent.TimeUnit;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import io.agroal.api.AgroalDataSource;
+import io.agroal.api.AgroalDataSourceMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.agroal.DataSource;
+import io.quarkus.runtime.StartupEvent;
+
+/**
+ * Exports the Agroal pool metrics of both datasources to Micrometer, tagged by datasource: the active, available and
+ * max used connections, the threads waiting for one, the acquisitions, and the time spent waiting for a connection
+ * (<code>incident.datasource.acquire.wait</code>), to tell pool starvation apart from slow queries. Requires
+ * <code>quarkus.datasource.jdbc.enable-metrics=true</code>.
+ * <p>
+ * Agroal only keeps the number of acquisitions and their total wait, and takes no listener of its own here: the wait
+ * is a function timer of these two totals. It gives the mean wait over any window, the rate of its total over the
+ * rate of its count, but no percentiles.
+ */
+@ApplicationScoped
+public class DataSourceMetricsBinder {
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @Inject
+    @DataSource("read")
+    AgroalDataSource readDataSource;
+
+    void onStart(@Observes StartupEvent e) {
+        monitor(dataSource, "default");
+        monitor(readDataSource, "read");
+    }
+
+    private void monitor(AgroalDataSource dataSource, String name) {
+        AgroalDataSourceMetrics metrics = dataSource.getMetrics();
+        Gauge.builder("incident.datasource.connections.active", metrics, AgroalDataSourceMetrics::activeCount)
+                .tag("datasource", name).register(meterRegistry);
+        Gauge.builder("incident.datasource.connections.available", metrics, AgroalDataSourceMetrics::availableCount)
+                .tag("datasource", name).register(meterRegistry);
+        Gauge.builder("incident.datasource.connections.max.used", metrics, AgroalDataSourceMetrics::maxUsedCount)
+                .tag("datasource", name).register(meterRegistry);
+        Gauge.builder("incident.datasource.acquire.waiting", metrics, AgroalDataSourceMetrics::awaitingCount)
+                .tag("datasource", name).register(meterRegistry);
+        FunctionCounter.builder("incident.datasource.acquire", metrics, AgroalDataSourceMetrics::acquireCount)
+                .tag("datasource", name).register(meterRegistry);
+        FunctionTimer.builder("incident.datasource.acquire.wait", metrics, AgroalDataSourceMetrics::acquireCount,
+                m -> m.blockingTimeTotal().toNanos(), TimeUnit.NANOSECONDS)
+                .tag("datasource", name).register(meterRegistry);
+    }
+}
@@ -0,0 +1,69 @@
+package com.redhat.emergency.response.incident.repository;
+
+import java.util.concurrent.TimeUnit;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+
+import com.redhat.emergency.response.incident.entity.Incident;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+import io.quarkus.hibernate.orm.PersistenceUnit;
+import io.quarkus.runtime.StartupEvent;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+
+/**
+ * Exports the Hibernate statistics of both persistence units, including the second-level and query cache
+ * regions, to Micrometer. Requires <code>quarkus.hibernate-orm.statistics=true</code>.
+ * <p>
+ * The statistics of the named queries of {@link Incident}, which Hibernate keeps by query string, are exported
+ * tagged by query name: executions and time (<code>hibernate.named.query</code>), max time and rows fetched.
+ */
+@ApplicationScoped
+public class HibernateMetricsBinder {
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    EntityManagerFactory entityManagerFactory;
+
+    @Inject
+    @PersistenceUnit("read")
+    EntityManagerFactory readEntityManagerFactory;
+
+    void onStart(@Observes StartupEvent e) {
+        monitor(entityManagerFactory.unwrap(SessionFactory.class), "default");
+        monitor(readEntityManagerFactory.unwrap(SessionFactory.class), "read");
+    }
+
+    private void monitor(SessionFactory sessionFactory, String name) {
+        HibernateMetrics.monitor(meterRegistry, sessionFactory, name);
+        Statistics statistics = sessionFactory.getStatistics();
+        for (NamedQuery namedQuery : Incident.class.getAnnotation(NamedQueries.class).value()) {
+            String query = namedQuery.query();
+            Tags tags = Tags.of("entityManagerFactory", name, "query", namedQuery.name());
+            FunctionTimer.builder("hibernate.named.query", statistics,
+                    s -> s.getQueryStatistics(query).getExecutionCount(),
+                    s -> s.getQueryStatistics(query).getExecutionTotalTime(), TimeUnit.MILLISECONDS)
+                    .tags(tags)
+                    .register(meterRegistry);
+            TimeGauge.builder("hibernate.named.query.max", statistics, TimeUnit.MILLISECONDS,
+                    s -> s.getQueryStatistics(query).getExecutionMaxTime())
+                    .tags(tags)
+                    .register(meterRegistry);
+            FunctionCounter.builder("hibernate.named.query.rows", statistics,
+                    s -> s.getQueryStatistics(query).getExecutionRowCount())
+                    .tags(tags)
+                    .register(meterRegistry);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.redhat.emergency.response.incident.repository;
+
+import java.util.List;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+
+import com.redhat.emergency.response.incident.entity.Incident;
+import com.redhat.emergency.response.incident.model.IncidentView;
+import io.quarkus.hibernate.orm.PersistenceUnit;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
+
+/**
+ * Queries served by the <code>read</code> persistence unit, backed by the read-only replica datasource.
+ * Lists are loaded as {@link IncidentView} projections, single incidents as read-only entities.
+ */
+@ApplicationScoped
+public class IncidentReadRepository {
+
+    @Inject
+    @PersistenceUnit("read")
+    EntityManager entityManager;
+
+    @Inject
+    TimedQueries queries;
+
+    public List<IncidentView> findAll() {
+        return queries.list("Incident.viewAll", views("Incident.viewAll"));
+    }
+
+    public Incident findByIncidentId(String incidentId) {
+        if (incidentId == null || incidentId.isEmpty()) {
+            return null;
+        }
+        List<Incident> incidents = queries.list("Incident.byIncidentId",
+                RequestDeadline.apply(entityManager.createNamedQuery("Incident.byIncidentId", Incident.class))
+                        .setParameter("incidentId", incidentId)
+                        .setHint(QueryHints.READ_ONLY, true));
+        if (incidents.isEmpty()) {
+            return null;
+        }
+        return incidents.get(0);
+    }
+
+    public List<IncidentView> findByStatus(String status) {
+        return queries.list("Incident.viewByStatus", views("Incident.viewByStatus").setParameter("status", status.toUpperCase()));
+    }
+
+    public List<IncidentView> findByName(String pattern) {
+        return queries.list("Incident.viewByName", views("Incident.viewByName").setParameter("pattern", pattern.toLowerCase()));
+    }
+
+    /**
+     * Projection queries return plain values: no entity is attached to the persistence context, snapshotted for
+     * dirty checking or flushed at commit.
+     */
+    private TypedQuery<IncidentView> views(String namedQuery) {
+        Session session = entityManager.unwrap(Session.class);
+        session.setDefaultReadOnly(true);
+        session.setHibernateFlushMode(FlushMode.MANUAL);
+        return RequestDeadline.apply(entityManager.createNamedQuery(namedQuery, IncidentView.class));
+    }
+}
@@ -1,35 +1,59 @@
 package com.redhat.emergency.response.incident.repository;
 
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.List;
+import java.util.stream.Collectors;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import javax.persistence.Cache;
 import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
 import javax.persistence.Query;
+import javax.persistence.TypedQuery;
 
 import com.redhat.emergency.response.incident.entity.Incident;
+import com.redhat.emergency.response.incident.model.IncidentLocation;
+import org.hibernate.CacheMode;
+import org.hibernate.LockOptions;
+import org.hibernate.Session;
+import org.hibernate.annotations.QueryHints;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.query.NativeQuery;
 
 @ApplicationScoped
 public class IncidentRepository {
 
+    private static final String COLUMNS = "id, incident_id, latitude, longitude, number_of_people, medical_needed, victim_name, victim_phone, reported_time, incident_status, version";
+
     @Inject
     EntityManager entityManager;
 
+    @Inject
+    EntityManagerFactory entityManagerFactory;
+
+    @Inject
+    TimedQueries queries;
+
     public Incident create(Incident incident) {
         entityManager.persist(incident);
         return incident;
     }
 
     public List<Incident> findAll() {
-        return entityManager.createNamedQuery("Incident.findAll", Incident.class).getResultList();
+        return queries.list("Incident.findAll", RequestDeadline.apply(entityManager.createNamedQuery("Incident.findAll", Incident.class)));
     }
 
     public Incident findByIncidentId(String incidentId) {
         if (incidentId == null || incidentId.isEmpty()) {
             return null;
         }
-        List<Incident> incidents = entityManager.createNamedQuery("Incident.byIncidentId", Incident.class)
-                .setParameter("incidentId", incidentId)
-                .getResultList();
+        List<Incident> incidents = queries.list("Incident.byIncidentId",
+                RequestDeadline.apply(entityManager.createNamedQuery("Incident.byIncidentId", Incident.class))
+                        .setParameter("incidentId", incidentId));
         if (incidents.isEmpty()) {
             return null;
         }
@@ -43,13 +67,15 @@ public class IncidentRepository {
     }
 
     public List<Incident> findByStatus(String status) {
-        return entityManager.createNamedQuery("Incident.byStatus", Incident.class)
-                .setParameter("status", status.toUpperCase()).getResultList();
+        return queries.list("Incident.byStatus",
+                RequestDeadline.apply(entityManager.createNamedQuery("Incident.byStatus", Incident.class))
+                        .setParameter("status", status.toUpperCase()));
     }
 
     public List<Incident> findByName(String pattern) {
-        return entityManager.createNamedQuery("Incident.findByName", Incident.class)
-                .setParameter("pattern", pattern.toLowerCase()).getResultList();
+        return queries.list("Incident.findByName",
+                RequestDeadline.apply(entityManager.createNamedQuery("Incident.findByName", Incident.class))
+                        .setParameter("pattern", pattern.toLowerCase()));
     }
 
     public void deleteAll() {
@@ -57,4 +83,153 @@ public class IncidentRepository {
         deleteAll.executeUpdate();
     }
 
+    /**
+     * Deletes up to <code>limit</code> incidents reported before <code>before</code>, with an id over
+     * <code>after</code>, lowest ids first.
+     *
+     * @return the ids of the deleted incidents
+     */
+    public List<Long> deleteReportedBefore(long after, Instant before, int limit) {
+        List<Long> ids = entityManager.createNamedQuery("Incident.reportedBefore", Long.class)
+                .setParameter("after", after)
+                .setParameter("before", before)
+                .setMaxResults(limit)
+                .getResultList();
+        if (!ids.isEmpty()) {
+            entityManager.createNamedQuery("Incident.deleteByIds").setParameter("ids", ids).executeUpdate();
+        }
+        return ids;
+    }
+
+    /**
+     * Writes the given positions in a single JDBC batch. The updates bypass Hibernate: the caller evicts the
+     * updated incidents from the second-level cache once the transaction has committed.
+     *
+     * @return the number of updated incidents
+     */
+    public int updateLocations(List<IncidentLocation> locations) {
+        return entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "UPDATE reported_incident SET latitude = ?, longitude = ?, version = version + 1 WHERE id = ?")) {
+                for (IncidentLocation location : locations) {
+                    statement.setString(1, location.getLatitude());
+                    statement.setString(2, location.getLongitude());
+                    statement.setLong(3, location.getId());
+                    statement.addBatch();
+                }
+                int updated = 0;
+                for (int count : statement.executeBatch()) {
+                    updated += count == Statement.SUCCESS_NO_INFO ? 1 : count;
+                }
+                return updated;
+            }
+        });
+    }
+
+    /**
+     * Deletes up to <code>limit</code> archived incidents reported before <code>before</code>, with an id over
+     * <code>after</code>, lowest ids first.
+     *
+     * @return the ids of the deleted incidents
+     */
+    @SuppressWarnings("unchecked")
+    public List<Long> deleteArchivedReportedBefore(long after, Instant before, int limit) {
+        List<Long> ids = ((List<Number>) entityManager.createNativeQuery("SELECT id FROM archived_incident WHERE id > :after "
+                + "AND (reported_time < :before OR reported_time IS NULL) ORDER BY id")
+                .setParameter("after", after)
+                .setParameter("before", Timestamp.from(before))
+                .setMaxResults(limit)
+                .getResultList()).stream().map(Number::longValue).collect(Collectors.toList());
+        if (!ids.isEmpty()) {
+            entityManager.createNativeQuery("DELETE FROM archived_incident WHERE id IN (:ids)")
+                    .unwrap(NativeQuery.class)
+                    .addSynchronizedQuerySpace("archived_incident")
+                    .setParameter("ids", ids)
+                    .executeUpdate();
+        }
+        return ids;
+    }
+
+    /**
+     * Evicts incidents from the second-level cache. Needs neither a transaction nor a request.
+     */
+    public void evict(List<Long> ids) {
+        Cache cache = entityManagerFactory.getCache();
+        ids.forEach(id -> cache.evict(Incident.class, id));
+    }
+
+    public void truncate() {
+        entityManager.createNativeQuery("TRUNCATE TABLE reported_incident").executeUpdate();
+        entityManager.createNativeQuery("TRUNCATE TABLE archived_incident").executeUpdate();
+    }
+
+    /**
+     * Moves up to <code>limit</code> incidents in one of the given statuses, reported before <code>before</code>,
+     * from the live table to the archive table. The selected rows stay locked until the end of the transaction, and
+     * the rows locked by another transaction are skipped: concurrent archivers, on several replicas, move distinct
+     * incidents.
+     *
+     * @return the number of archived incidents
+     */
+    public int archive(List<String> statuses, Instant before, int limit) {
+        List<Long> ids = archivable(statuses, before, limit).getResultList();
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        // only archived_incident is written: leaves the Incident cache regions alone
+        entityManager.createNativeQuery("INSERT INTO archived_incident (" + COLUMNS + ", archived_time) SELECT " + COLUMNS + ", :archivedTime FROM reported_incident WHERE id IN (:ids)")
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace("archived_incident")
+                .setParameter("archivedTime", Timestamp.from(Instant.now()))
+                .setParameter("ids", ids)
+                .executeUpdate();
+        entityManager.createNamedQuery("Incident.deleteByIds").setParameter("ids", ids).executeUpdate();
+        return ids.size();
+    }
+
+    TypedQuery<Long> archivable(List<String> statuses, Instant before, int limit) {
+        // SELECT ... FOR UPDATE SKIP LOCKED on PostgreSQL
+        return entityManager.createNamedQuery("Incident.archivable", Long.class)
+                .setParameter("statuses", statuses)
+                .setParameter("before", before)
+                .setMaxResults(limit)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .setHint(AvailableSettings.JPA_LOCK_TIMEOUT, LockOptions.SKIP_LOCKED);
+    }
+
+    public List<Incident> findArchived() {
+        return findArchived("ArchivedIncident.findAll", "", null, null);
+    }
+
+    public Incident findArchivedByIncidentId(String incidentId) {
+        if (incidentId == null || incidentId.isEmpty()) {
+            return null;
+        }
+        List<Incident> incidents = findArchived("ArchivedIncident.byIncidentId", " WHERE incident_id = :incidentId", "incidentId", incidentId);
+        if (incidents.isEmpty()) {
+            return null;
+        }
+        return incidents.get(0);
+    }
+
+    public List<Incident> findArchivedByStatus(String status) {
+        return findArchived("ArchivedIncident.byStatus", " WHERE incident_status = :status", "status", status.toUpperCase());
+    }
+
+    public List<Incident> findArchivedByName(String pattern) {
+        return findArchived("ArchivedIncident.findByName", " WHERE LOWER(victim_name) LIKE :pattern", "pattern", pattern.toLowerCase());
+    }
+
+    private List<Incident> findArchived(String name, String where, String parameter, Object value) {
+        // archived incidents are loaded read-only: they are never dirty-checked nor flushed to the live table,
+        // and stay out of the second-level cache, which holds live incidents only
+        Query query = RequestDeadline.apply(entityManager.createNativeQuery("SELECT " + COLUMNS + " FROM archived_incident" + where, Incident.class))
+                .setHint(QueryHints.READ_ONLY, true)
+                .setHint(QueryHints.CACHE_MODE, CacheMode.IGNORE);
+        if (parameter != null) {
+            query.setParameter(parameter, value);
+        }
+        return queries.list(name, query);
+    }
+
 }
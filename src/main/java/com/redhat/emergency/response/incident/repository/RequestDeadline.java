@@ -0,0 +1,60 @@
+package com.redhat.emergency.response.incident.repository;
+
+import javax.persistence.Query;
+import javax.persistence.QueryTimeoutException;
+
+/**
+ * Deadline of the request served by the current thread, applied as the timeout of the queries run for it, so that
+ * the database stops working on a request the client has given up on.
+ */
+public final class RequestDeadline {
+
+    /**
+     * Header carrying the deadline of a request, in epoch milliseconds.
+     */
+    public static final String HEADER = "deadline";
+
+    private static final String QUERY_TIMEOUT = "javax.persistence.query.timeout";
+
+    private static final ThreadLocal<Long> DEADLINE = new ThreadLocal<>();
+
+    private RequestDeadline() {
+    }
+
+    /**
+     * Runs the work with the given deadline, in epoch milliseconds. A deadline of 0 means none.
+     */
+    public static void run(long deadline, Runnable runnable) {
+        if (deadline <= 0) {
+            runnable.run();
+            return;
+        }
+        DEADLINE.set(deadline);
+        try {
+            runnable.run();
+        } finally {
+            DEADLINE.remove();
+        }
+    }
+
+    /**
+     * Sets the remaining time of the current request as the timeout of the query. Hibernate applies the timeout in
+     * whole seconds, rounding the hint to the nearest one, so the remaining time is rounded up to the next second: a
+     * query may overrun the deadline by up to a second, but never runs without a timeout.
+     *
+     * @throws QueryTimeoutException if the deadline has already passed
+     */
+    static <T extends Query> T apply(T query) {
+        Long deadline = DEADLINE.get();
+        if (deadline == null) {
+            return query;
+        }
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            throw new QueryTimeoutException("Request deadline exceeded");
+        }
+        long seconds = (remaining + 999) / 1000;
+        query.setHint(QUERY_TIMEOUT, (int) Math.min(seconds * 1000, Integer.MAX_VALUE));
+        return query;
+    }
+}
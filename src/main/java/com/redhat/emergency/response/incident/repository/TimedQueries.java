@@ -0,0 +1,92 @@
+package com.redhat.emergency.response.incident.repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.Parameter;
+import javax.persistence.Query;
+
+import com.redhat.emergency.response.incident.metrics.PipelineMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the queries of the repositories, recording their latency by query name. Queries slower than
+ * <code>incident.query.slow-threshold-ms</code> are counted in <code>incident.query.slow</code> and logged with
+ * their row count and the types of their bind parameters. The values of the parameters, victim names among them,
+ * are only logged at DEBUG.
+ */
+@ApplicationScoped
+class TimedQueries {
+
+    private static final Logger log = LoggerFactory.getLogger(TimedQueries.class);
+
+    private static final int MAX_VALUE_LENGTH = 100;
+
+    @Inject
+    PipelineMetrics metrics;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "incident.query.slow-threshold-ms", defaultValue = "500")
+    long slowThresholdMs;
+
+    @SuppressWarnings("unchecked")
+    <T> List<T> list(String name, Query query) {
+        long start = System.nanoTime();
+        try {
+            List<T> result = query.getResultList();
+            metrics.recordQuery(name, PipelineMetrics.Outcome.SUCCESS, start);
+            slow(name, query, start, result.size() + " rows");
+            return result;
+        } catch (RuntimeException e) {
+            metrics.recordQuery(name, PipelineMetrics.Outcome.FAILURE, start);
+            slow(name, query, start, "failed");
+            throw e;
+        }
+    }
+
+    private void slow(String name, Query query, long start, String result) {
+        long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        if (elapsed >= slowThresholdMs) {
+            meterRegistry.counter("incident.query.slow", "query", name).increment();
+            log.warn(describe(name, query, elapsed, result, false));
+            if (log.isDebugEnabled()) {
+                log.debug(describe(name, query, elapsed, result, true));
+            }
+        }
+    }
+
+    /**
+     * @param values whether to describe the parameters by their values, or by their types only
+     */
+    static String describe(String name, Query query, long elapsedMs, String result, boolean values) {
+        String parameters = query.getParameters().stream()
+                .map(p -> (p.getName() != null ? p.getName() : "?" + p.getPosition()) + "=" + value(query, p, values))
+                .sorted()
+                .collect(Collectors.joining(", ", "{", "}"));
+        return "Slow query " + name + ": " + elapsedMs + " ms, " + result + ", parameters " + parameters;
+    }
+
+    private static String value(Query query, Parameter<?> parameter, boolean values) {
+        Object bound;
+        try {
+            // multi-valued parameters are not reported as bound by Hibernate
+            bound = query.getParameterValue(parameter);
+        } catch (IllegalStateException e) {
+            return "<unbound>";
+        }
+        if (!values) {
+            return bound == null ? "null" : bound instanceof Collection ? "<" + ((Collection<?>) bound).size() + " values>"
+                    : "<" + bound.getClass().getSimpleName() + ">";
+        }
+        String value = String.valueOf(bound);
+        return value.length() > MAX_VALUE_LENGTH ? value.substring(0, MAX_VALUE_LENGTH) + "..." : value;
+    }
+}
@@ -5,10 +5,11 @@ import javax.enterprise.context.ApplicationScoped;
 import org.eclipse.microprofile.health.HealthCheck;
 import org.eclipse.microprofile.health.HealthCheckResponse;
 import org.eclipse.microprofile.health.Liveness;
-import org.eclipse.microprofile.health.Readiness;
 
+/**
+ * Liveness only: readiness follows the load, see {@link LoadReadinessCheck}.
+ */
 @Liveness
-@Readiness
 @ApplicationScoped
 public class ApplicationHealthCheck implements HealthCheck {
 
@@ -0,0 +1,171 @@
+package com.redhat.emergency.response.incident.rest;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Adaptive concurrency limits of the REST requests, one for the reads and one for the writes.
+ * <p>
+ * Each limit follows the latency of the requests: it grows while the latency stays close to its long term average,
+ * and shrinks as the latency rises above it, which is when the requests start queueing. A request that times out or
+ * is rejected by the incident service cuts the limit right away. Requests above the limit are not sent at all.
+ */
+@ApplicationScoped
+public class IncidentRequestLimiter {
+
+    public enum Kind {
+        READ, WRITE
+    }
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "incident.rest.limit.tolerance", defaultValue = "2.0")
+    double tolerance;
+
+    @ConfigProperty(name = "incident.rest.limit.smoothing", defaultValue = "0.2")
+    double smoothing;
+
+    private final Map<Kind, Limit> limits = new EnumMap<>(Kind.class);
+
+    void onStart(@Observes StartupEvent e) {
+        Config config = ConfigProvider.getConfig();
+        for (Kind kind : Kind.values()) {
+            String prefix = "incident.rest.limit." + kind.name().toLowerCase();
+            int initial = config.getOptionalValue(prefix + ".initial", Integer.class).orElse(20);
+            int min = config.getOptionalValue(prefix + ".min", Integer.class).orElse(4);
+            int max = config.getOptionalValue(prefix + ".max", Integer.class).orElse(200);
+            Limit limit = new Limit(initial, min, max, tolerance, smoothing);
+            String tag = kind.name().toLowerCase();
+            Gauge.builder("incident.rest.limit", limit, Limit::limit).tag("kind", tag).register(meterRegistry);
+            Gauge.builder("incident.rest.inflight", limit, Limit::inFlight).tag("kind", tag).register(meterRegistry);
+            limit.rejected = Counter.builder("incident.rest.rejected").tag("kind", tag).register(meterRegistry);
+            limits.put(kind, limit);
+        }
+    }
+
+    /**
+     * @return a permit to send the request, to be completed once the reply is in; or null if the request must be
+     * shed
+     */
+    public Permit tryAcquire(Kind kind) {
+        return limits.get(kind).tryAcquire();
+    }
+
+    public interface Permit {
+
+        void onSuccess(long latencyNanos);
+
+        /**
+         * The request timed out or was rejected: the service is overloaded.
+         */
+        void onDropped();
+
+        /**
+         * The request failed for another reason or was cancelled: its latency says nothing about the load.
+         */
+        void onIgnore();
+    }
+
+    static class Limit {
+
+        private static final double BACKOFF = 0.9;
+
+        // the long term latency follows the short term one slowly, so that a sustained rise shows as a gradient
+        private static final double LONG_SMOOTHING = 0.01;
+
+        private final int min;
+
+        private final int max;
+
+        private final double tolerance;
+
+        private final double smoothing;
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+
+        private volatile double limit;
+
+        private double longLatency;
+
+        private Counter rejected;
+
+        Limit(int initial, int min, int max, double tolerance, double smoothing) {
+            this.limit = initial;
+            this.min = min;
+            this.max = max;
+            this.tolerance = tolerance;
+            this.smoothing = smoothing;
+        }
+
+        int limit() {
+            return (int) limit;
+        }
+
+        int inFlight() {
+            return inFlight.get();
+        }
+
+        Permit tryAcquire() {
+            int current;
+            do {
+                current = inFlight.get();
+                if (current >= (int) limit) {
+                    if (rejected != null) {
+                        rejected.increment();
+                    }
+                    return null;
+                }
+            } while (!inFlight.compareAndSet(current, current + 1));
+            return new Permit() {
+                @Override
+                public void onSuccess(long latencyNanos) {
+                    sample(inFlight.getAndDecrement(), latencyNanos);
+                }
+
+                @Override
+                public void onDropped() {
+                    inFlight.decrementAndGet();
+                    drop();
+                }
+
+                @Override
+                public void onIgnore() {
+                    inFlight.decrementAndGet();
+                }
+            };
+        }
+
+        synchronized void sample(int inFlight, long latencyNanos) {
+            double latency = Math.max(latencyNanos, 1);
+            longLatency = longLatency == 0 ? latency : longLatency + LONG_SMOOTHING * (latency - longLatency);
+            // a limit that is not used says nothing about the capacity: don't let it grow unbounded
+            if (inFlight < limit / 2) {
+                return;
+            }
+            double gradient = Math.max(0.5, Math.min(1.0, tolerance * longLatency / latency));
+            double target = limit * gradient + Math.sqrt(limit);
+            limit = clamp(limit * (1 - smoothing) + target * smoothing);
+        }
+
+        synchronized void drop() {
+            limit = clamp(limit * BACKOFF);
+        }
+
+        private double clamp(double value) {
+            return Math.max(min, Math.min(max, value));
+        }
+    }
+}
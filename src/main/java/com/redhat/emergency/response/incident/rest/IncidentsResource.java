@@ -1,5 +1,10 @@
 package com.redhat.emergency.response.incident.rest;
 
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import javax.inject.Inject;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.GET;
@@ -7,13 +12,22 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import com.redhat.emergency.response.incident.metrics.PipelineMetrics;
+import com.redhat.emergency.response.incident.repository.RequestDeadline;
+import com.redhat.emergency.response.incident.service.IncidentServiceDispatcher;
 import io.smallrye.mutiny.Uni;
 import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.eventbus.ReplyFailure;
 import io.vertx.core.json.JsonObject;
 import io.vertx.mutiny.core.eventbus.EventBus;
+import io.vertx.mutiny.core.eventbus.Message;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 @Path("/incidents")
 public class IncidentsResource {
@@ -21,64 +35,165 @@ public class IncidentsResource {
     @Inject
     EventBus bus;
 
+    @Inject
+    IncidentRequestLimiter limiter;
+
+    @Inject
+    PipelineMetrics metrics;
+
+    @ConfigProperty(name = "incident.rest.timeout.default", defaultValue = "5000")
+    long defaultTimeout;
+
+    private final Map<String, Long> timeouts = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+
     @GET
     @Path("/")
     @Produces(MediaType.APPLICATION_JSON)
-    public Uni<Response> incidents() {
-        DeliveryOptions options = new DeliveryOptions().addHeader("action", "incidents");
-        return bus.<JsonObject>request("incident-service", new JsonObject(), options)
-                .onItem().transform(msg -> Response.ok(msg.body().getJsonArray("incidents").encode()).build());
+    public Uni<Response> incidents(@QueryParam("includeArchived") boolean includeArchived) {
+        return request("incidents", withArchived(new JsonObject(), includeArchived), msg -> Response.ok(msg.body().getJsonArray("incidents").encode()).build());
     }
 
     @POST
     @Path("/")
     @Consumes(MediaType.APPLICATION_JSON)
     public Uni<Response> createIncident(String incident) {
-        DeliveryOptions options = new DeliveryOptions().addHeader("action", "createIncident");
-        return bus.<JsonObject>request("incident-service", new JsonObject(incident), options)
-                .onItem().transform(msg -> Response.status(200).build());
+        return request("createIncident", new JsonObject(incident), msg -> Response.status(200).build());
     }
 
     @GET
     @Path("/{status}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Uni<Response> incidentsByStatus(@PathParam("status") String status) {
-        DeliveryOptions options = new DeliveryOptions().addHeader("action", "incidentsByStatus");
-        return bus.<JsonObject>request("incident-service", new JsonObject().put("status", status), options)
-                .onItem().transform(msg -> Response.ok(msg.body().getJsonArray("incidents").encode()).build());
+    public Uni<Response> incidentsByStatus(@PathParam("status") String status, @QueryParam("includeArchived") boolean includeArchived) {
+        return request("incidentsByStatus", withArchived(new JsonObject().put("status", status), includeArchived), msg -> Response.ok(msg.body().getJsonArray("incidents").encode()).build());
     }
 
     @GET
     @Path("/incident/{id}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Uni<Response> incidentById(@PathParam("id") String incidentId) {
-        DeliveryOptions options = new DeliveryOptions().addHeader("action", "incidentById");
-        return bus.<JsonObject>request("incident-service", new JsonObject().put("incidentId", incidentId), options)
-                .onItem().transform(msg -> {
-                    JsonObject incident = msg.body().getJsonObject("incident");
-                    if (incident == null) {
-                        return Response.status(404).build();
-                    } else {
-                        return Response.ok(incident.encode()).build();
-                    }
-                });
+    public Uni<Response> incidentById(@PathParam("id") String incidentId, @QueryParam("includeArchived") boolean includeArchived) {
+        return request("incidentById", withArchived(new JsonObject().put("incidentId", incidentId), includeArchived), msg -> {
+            JsonObject incident = msg.body().getJsonObject("incident");
+            if (incident == null) {
+                return Response.status(404).build();
+            } else {
+                return Response.ok(incident.encode()).build();
+            }
+        });
     }
 
     @GET
     @Path("/byname/{name}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Uni<Response> incidentsByName(@PathParam("name") String name) {
-        DeliveryOptions options = new DeliveryOptions().addHeader("action", "incidentsByName");
-        return bus.<JsonObject>request("incident-service", new JsonObject().put("name", name), options)
-                .onItem().transform(msg -> Response.ok(msg.body().getJsonArray("incidents").encode()).build());
+    public Uni<Response> incidentsByName(@PathParam("name") String name, @QueryParam("includeArchived") boolean includeArchived) {
+        return request("incidentsByName", withArchived(new JsonObject().put("name", name), includeArchived), msg -> Response.ok(msg.body().getJsonArray("incidents").encode()).build());
     }
 
     @POST
     @Path("/reset")
+    @Produces(MediaType.APPLICATION_JSON)
     public Uni<Response> reset() {
-        DeliveryOptions options = new DeliveryOptions().addHeader("action", "reset");
-        return bus.<JsonObject>request("incident-service", new JsonObject(), options)
-                .onItem().transform(msg -> Response.ok().build());
+        return request("reset", new JsonObject(), msg -> {
+            JsonObject job = msg.body().getJsonObject("job");
+            return Response.accepted(job.encode()).location(URI.create("/incidents/reset/" + job.getString("jobId"))).build();
+        });
+    }
+
+    /**
+     * Status of a reset job. The jobs are held by the pod that started them: another replica answers 404.
+     */
+    @GET
+    @Path("/reset/{jobId}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Uni<Response> resetStatus(@PathParam("jobId") String jobId) {
+        return request("resetStatus", new JsonObject().put("jobId", jobId), msg -> {
+            JsonObject job = msg.body().getJsonObject("job");
+            if (job == null) {
+                return Response.status(404).build();
+            } else {
+                return Response.ok(job.encode()).build();
+            }
+        });
+    }
+
+    private long timeout(String action) {
+        return timeouts.computeIfAbsent(action, a -> ConfigProvider.getConfig()
+                .getOptionalValue("incident.rest.timeout." + a, Long.class).orElse(defaultTimeout));
+    }
+
+    /**
+     * Sends the request to the incident service, within the concurrency limit of its kind and the timeout of its
+     * action. Requests over the limit, and requests rejected by a saturated bulkhead, are answered with a 503;
+     * requests past their deadline, whether still queued, in a query or awaiting the reply, with a 504.
+     */
+    private Uni<Response> request(String action, JsonObject body, Function<Message<JsonObject>, Response> mapper) {
+        long start = System.nanoTime();
+        PipelineMetrics.Action metricsAction = PipelineMetrics.Action.of(action);
+        IncidentRequestLimiter.Kind kind = metricsAction.is(PipelineMetrics.Action.Trait.WRITE)
+                ? IncidentRequestLimiter.Kind.WRITE : IncidentRequestLimiter.Kind.READ;
+        IncidentRequestLimiter.Permit permit = limiter.tryAcquire(kind);
+        if (permit == null) {
+            metrics.record(PipelineMetrics.Stage.HTTP, metricsAction, PipelineMetrics.Outcome.REJECTED, start);
+            return Uni.createFrom().item(unavailable());
+        }
+        long timeout = timeout(action);
+        String requestId = Long.toString(requests.incrementAndGet());
+        DeliveryOptions options = new DeliveryOptions().addHeader("action", action)
+                .addHeader(IncidentServiceDispatcher.REQUEST_ID, requestId)
+                .addHeader(IncidentServiceDispatcher.SENT, Long.toString(System.nanoTime()))
+                .addHeader(RequestDeadline.HEADER, Long.toString(System.currentTimeMillis() + timeout))
+                .setSendTimeout(timeout);
+        return bus.<JsonObject>request("incident-service", body, options)
+                .onTermination().invoke((msg, failure, cancelled) -> {
+                    if (cancelled) {
+                        // the client is gone: the request is dropped if it is still queued
+                        bus.sendAndForget(IncidentServiceDispatcher.CANCEL_ADDRESS, requestId);
+                        permit.onIgnore();
+                    } else if (failure == null) {
+                        permit.onSuccess(System.nanoTime() - start);
+                    } else if (isOverloaded(failure)) {
+                        permit.onDropped();
+                    } else {
+                        permit.onIgnore();
+                    }
+                })
+                .onItem().transform(msg -> {
+                    long encoding = System.nanoTime();
+                    Response response = mapper.apply(msg);
+                    metrics.record(PipelineMetrics.Stage.SERIALIZATION, metricsAction, PipelineMetrics.Outcome.SUCCESS, encoding);
+                    metrics.record(PipelineMetrics.Stage.HTTP, metricsAction, PipelineMetrics.Outcome.SUCCESS, start);
+                    return response;
+                })
+                .onFailure().invoke(failure -> metrics.record(PipelineMetrics.Stage.HTTP, metricsAction,
+                        isRejected(failure) ? PipelineMetrics.Outcome.REJECTED : PipelineMetrics.Outcome.FAILURE, start))
+                .onFailure(IncidentsResource::isRejected).recoverWithItem(IncidentsResource::unavailable)
+                .onFailure(IncidentsResource::isExpired).recoverWithItem(IncidentsResource::expired);
+    }
+
+    private static Response unavailable() {
+        return Response.status(503).header("Retry-After", 1).build();
+    }
+
+    private static Response expired() {
+        return Response.status(504).build();
+    }
+
+    private static boolean isRejected(Throwable failure) {
+        return failure instanceof ReplyException && ((ReplyException) failure).failureCode() == IncidentServiceDispatcher.REJECTED;
+    }
+
+    private static boolean isExpired(Throwable failure) {
+        return failure instanceof ReplyException && (((ReplyException) failure).failureCode() == IncidentServiceDispatcher.EXPIRED
+                || ((ReplyException) failure).failureType() == ReplyFailure.TIMEOUT);
+    }
+
+    private static boolean isOverloaded(Throwable failure) {
+        return isRejected(failure) || isExpired(failure);
+    }
+
+    private JsonObject withArchived(JsonObject body, boolean includeArchived) {
+        return includeArchived ? body.put("includeArchived", true) : body;
     }
 
 }
@@ -0,0 +1,245 @@
+package com.redhat.emergency.response.incident.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Time-boxed Java Flight Recorder sessions, one at a time, with the low-overhead <code>default</code> settings of the
+ * JDK plus the allocation events sampled per TLAB. The last recording is kept on disk until the next one starts.
+ * <p>
+ * The summary of a recording attributes the execution samples and the allocated bytes to the innermost frame of the
+ * incident service packages, skipping the generated proxies.
+ * <p>
+ * The recording file is only read under the lock that starting the next recording deletes it with: a summary or a
+ * download in progress delays the start of the next recording, and the status requests, until it is over.
+ */
+@ApplicationScoped
+public class JfrProfiler {
+
+    private static final Logger log = LoggerFactory.getLogger(JfrProfiler.class);
+
+    static final String PACKAGE = "com.redhat.emergency.response.incident.";
+
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+
+    private static final String ALLOCATION_IN_NEW_TLAB = "jdk.ObjectAllocationInNewTLAB";
+
+    private static final String ALLOCATION_OUTSIDE_TLAB = "jdk.ObjectAllocationOutsideTLAB";
+
+    @ConfigProperty(name = "incident.admin.profiling.max-duration", defaultValue = "PT5M")
+    Duration maxDuration;
+
+    @ConfigProperty(name = "incident.admin.profiling.top", defaultValue = "20")
+    int top;
+
+    private long lastId;
+
+    private Recording recording;
+
+    private Path file;
+
+    private Instant started;
+
+    /**
+     * Starts a recording that stops by itself after the given duration.
+     *
+     * @return the id of the recording
+     * @throws IllegalStateException    if a recording is already running
+     * @throws IllegalArgumentException if the duration is not positive or above the max duration
+     */
+    public synchronized long start(Duration duration) throws IOException, ParseException {
+        if (duration.isNegative() || duration.isZero() || duration.compareTo(maxDuration) > 0) {
+            throw new IllegalArgumentException("Duration must be positive and at most " + maxDuration);
+        }
+        if (recording != null && isRunning(recording)) {
+            throw new IllegalStateException("Recording " + lastId + " is running");
+        }
+        close();
+        file = Files.createTempFile("incident-service-", ".jfr");
+        recording = new Recording(Configuration.getConfiguration("default"));
+        recording.enable(ALLOCATION_IN_NEW_TLAB).withStackTrace();
+        recording.enable(ALLOCATION_OUTSIDE_TLAB).withStackTrace();
+        recording.setName("incident-service-" + (lastId + 1));
+        recording.setToDisk(true);
+        recording.setDestination(file);
+        recording.setDuration(duration);
+        recording.start();
+        started = Instant.now();
+        lastId++;
+        log.info("Started JFR recording " + lastId + " for " + duration + " to " + file);
+        return lastId;
+    }
+
+    public synchronized Optional<JsonObject> status(long id) {
+        if (recording == null || id != lastId) {
+            return Optional.empty();
+        }
+        return Optional.of(new JsonObject()
+                .put("id", id)
+                .put("state", isDone() ? "done" : "running")
+                .put("started", started.toString())
+                .put("duration", recording.getDuration().toString()));
+    }
+
+    /**
+     * Returns the file of a recording that is done. It is deleted once the next recording starts: read it with
+     * {@link #copy(long, OutputStream)}.
+     *
+     * @throws IllegalStateException if the recording is still running
+     */
+    public synchronized Optional<Path> file(long id) {
+        if (recording == null || id != lastId) {
+            return Optional.empty();
+        }
+        if (!isDone()) {
+            throw new IllegalStateException("Recording " + id + " is running");
+        }
+        return Optional.of(file);
+    }
+
+    /**
+     * Copies the file of a recording that is done to the output.
+     *
+     * @throws NoSuchFileException if the recording has been replaced by another one meanwhile
+     */
+    public synchronized void copy(long id, OutputStream out) throws IOException {
+        if (recording == null || id != lastId) {
+            throw new NoSuchFileException("Recording " + id + " has been replaced");
+        }
+        Files.copy(file, out);
+    }
+
+    /**
+     * Summarizes the hot methods and the allocation sites of the incident service packages in a recording that is
+     * done.
+     *
+     * @throws IllegalStateException if the recording is still running
+     */
+    public synchronized Optional<JsonObject> summary(long id) throws IOException {
+        Optional<Path> path = file(id);
+        if (path.isEmpty()) {
+            return Optional.empty();
+        }
+        long samples = 0;
+        long allocated = 0;
+        Map<String, Long> methods = new HashMap<>();
+        Map<String, Long> sites = new HashMap<>();
+        try (RecordingFile events = new RecordingFile(path.get())) {
+            while (events.hasMoreEvents()) {
+                RecordedEvent event = events.readEvent();
+                String type = event.getEventType().getName();
+                if (EXECUTION_SAMPLE.equals(type)) {
+                    samples++;
+                    RecordedFrame frame = innermostFrame(event.getStackTrace());
+                    if (frame != null) {
+                        methods.merge(method(frame), 1L, Long::sum);
+                    }
+                } else if (ALLOCATION_IN_NEW_TLAB.equals(type) || ALLOCATION_OUTSIDE_TLAB.equals(type)) {
+                    // sampled events: a new TLAB stands for all the allocations made in it
+                    long bytes = ALLOCATION_IN_NEW_TLAB.equals(type) ? event.getLong("tlabSize") : event.getLong("allocationSize");
+                    allocated += bytes;
+                    RecordedFrame frame = innermostFrame(event.getStackTrace());
+                    if (frame != null) {
+                        sites.merge(method(frame) + ":" + frame.getLineNumber() + " " + event.getClass("objectClass").getName(),
+                                bytes, Long::sum);
+                    }
+                }
+            }
+        }
+        return Optional.of(new JsonObject()
+                .put("id", id)
+                .put("executionSamples", samples)
+                .put("hotMethods", top(methods, samples, "method", "samples"))
+                .put("allocatedBytes", allocated)
+                .put("allocationSites", top(sites, allocated, "site", "bytes")));
+    }
+
+    void onStop(@Observes ShutdownEvent e) {
+        close();
+    }
+
+    private synchronized void close() {
+        if (recording != null) {
+            recording.close();
+            recording = null;
+        }
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("Error deleting JFR recording " + file, e);
+            }
+            file = null;
+        }
+    }
+
+    private boolean isDone() {
+        try {
+            return !isRunning(recording) && Files.size(file) > 0;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static boolean isRunning(Recording recording) {
+        RecordingState state = recording.getState();
+        return state == RecordingState.NEW || state == RecordingState.DELAYED || state == RecordingState.RUNNING;
+    }
+
+    private JsonArray top(Map<String, Long> counts, long total, String key, String value) {
+        List<JsonObject> entries = counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .limit(top)
+                .map(entry -> new JsonObject()
+                        .put(key, entry.getKey())
+                        .put(value, entry.getValue())
+                        .put("ratio", total == 0 ? 0.0 : entry.getValue() / (double) total))
+                .collect(Collectors.toList());
+        return new JsonArray(entries);
+    }
+
+    private static RecordedFrame innermostFrame(RecordedStackTrace stackTrace) {
+        if (stackTrace == null) {
+            return null;
+        }
+        for (RecordedFrame frame : stackTrace.getFrames()) {
+            String type = frame.getMethod().getType().getName();
+            if (type.startsWith(PACKAGE) && !type.contains("_ClientProxy") && !type.contains("_Subclass")) {
+                return frame;
+            }
+        }
+        return null;
+    }
+
+    private static String method(RecordedFrame frame) {
+        return frame.getMethod().getType().getName() + "." + frame.getMethod().getName();
+    }
+}
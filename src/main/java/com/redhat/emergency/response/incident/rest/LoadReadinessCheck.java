@@ -0,0 +1,187 @@
+package com.redhat.emergency.response.incident.rest;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import com.redhat.emergency.response.incident.consumer.IncidentCommandFlowControl;
+import com.redhat.emergency.response.incident.consumer.IncidentCommandMessageSource;
+import com.redhat.emergency.response.incident.service.EventBusConsumer;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler.Bulkhead;
+import io.agroal.api.AgroalDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.agroal.DataSource;
+import io.quarkus.runtime.StartupEvent;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Readiness driven by saturation, so that an overloaded pod briefly drops out of the service endpoints: the
+ * saturation of each bulkhead serving the clients, the threads waiting for a database connection, the backlog of
+ * outgoing events and the lag of the incident commands being consumed.
+ * <p>
+ * The admin bulkhead is left out: a reset running on it says nothing of the capacity left for the clients. The
+ * thresholds of a bulkhead are <code>incident.readiness.bulkhead-saturation.&lt;bulkhead&gt;.high</code> and
+ * <code>.low</code>, defaulting to those of all the bulkheads.
+ * <p>
+ * The pod turns not ready once a signal reaches its high threshold, and ready again once all signals are back
+ * under their low threshold. Each probe evaluates the signals.
+ */
+@Readiness
+@ApplicationScoped
+public class LoadReadinessCheck implements HealthCheck {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadReadinessCheck.class);
+
+    @Inject
+    IncidentPriorityScheduler scheduler;
+
+    @Inject
+    AgroalDataSource dataSource;
+
+    @Inject
+    @DataSource("read")
+    AgroalDataSource readDataSource;
+
+    @Inject
+    EventBusConsumer eventBusConsumer;
+
+    @Inject
+    IncidentCommandMessageSource commandSource;
+
+    @Inject
+    IncidentCommandFlowControl flowControl;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "incident.readiness.load-aware", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "incident.readiness.bulkhead-saturation.high", defaultValue = "0.9")
+    double saturationHigh;
+
+    @ConfigProperty(name = "incident.readiness.bulkhead-saturation.low", defaultValue = "0.5")
+    double saturationLow;
+
+    @ConfigProperty(name = "incident.readiness.connection-waiters.high", defaultValue = "10")
+    long waitersHigh;
+
+    @ConfigProperty(name = "incident.readiness.connection-waiters.low", defaultValue = "0")
+    long waitersLow;
+
+    @ConfigProperty(name = "incident.readiness.event-backlog.high", defaultValue = "1000")
+    long backlogHigh;
+
+    @ConfigProperty(name = "incident.readiness.event-backlog.low", defaultValue = "100")
+    long backlogLow;
+
+    @ConfigProperty(name = "incident.readiness.command-lag-ms.high", defaultValue = "30000")
+    long lagHigh;
+
+    @ConfigProperty(name = "incident.readiness.command-lag-ms.low", defaultValue = "5000")
+    long lagLow;
+
+    private final Map<Bulkhead, Double> saturationHighs = new EnumMap<>(Bulkhead.class);
+
+    private final Map<Bulkhead, Double> saturationLows = new EnumMap<>(Bulkhead.class);
+
+    private volatile boolean overloaded;
+
+    void onStart(@Observes StartupEvent e) {
+        Config config = ConfigProvider.getConfig();
+        for (Bulkhead bulkhead : Bulkhead.values()) {
+            if (bulkhead == Bulkhead.ADMIN) {
+                continue;
+            }
+            String prefix = "incident.readiness.bulkhead-saturation." + bulkhead.key();
+            saturationHighs.put(bulkhead, config.getOptionalValue(prefix + ".high", Double.class).orElse(saturationHigh));
+            saturationLows.put(bulkhead, config.getOptionalValue(prefix + ".low", Double.class).orElse(saturationLow));
+        }
+        Gauge.builder("incident.readiness.overloaded", this, c -> c.overloaded ? 1 : 0).register(meterRegistry);
+    }
+
+    @Override
+    public synchronized HealthCheckResponse call() {
+        List<Signal> signals = signals();
+        if (!enabled) {
+            overloaded = false;
+        } else if (!overloaded && signals.stream().anyMatch(Signal::isHigh)) {
+            overloaded = true;
+            log.warn("Overloaded, turning not ready: " + signals);
+        } else if (overloaded && signals.stream().allMatch(Signal::isLow)) {
+            overloaded = false;
+            log.info("Load back to normal, turning ready: " + signals);
+        }
+        HealthCheckResponseBuilder response = HealthCheckResponse.named("Load").state(!overloaded);
+        signals.forEach(signal -> response.withData(signal.name, signal.value.toString()));
+        return response.build();
+    }
+
+    private List<Signal> signals() {
+        long waiters = Math.max(dataSource.getMetrics().awaitingCount(), readDataSource.getMetrics().awaitingCount());
+        long backlog = Math.max(eventBusConsumer.backlog(), commandSource.backlog());
+        // the lag of the last record is only current while records are being consumed
+        long lag = flowControl.inFlight() > 0 || flowControl.isPaused() ? flowControl.lag() : 0;
+        List<Signal> signals = new ArrayList<>();
+        saturationHighs.forEach((bulkhead, high) -> signals.add(new Signal(saturationSignal(bulkhead),
+                scheduler.saturation(bulkhead), high, saturationLows.get(bulkhead))));
+        signals.add(new Signal("connectionWaiters", waiters, waitersHigh, waitersLow));
+        signals.add(new Signal("eventBacklog", backlog, backlogHigh, backlogLow));
+        signals.add(new Signal("commandLagMs", lag, lagHigh, lagLow));
+        return signals;
+    }
+
+    // pointReadSaturation for point-read
+    private static String saturationSignal(Bulkhead bulkhead) {
+        StringBuilder name = new StringBuilder();
+        for (String word : bulkhead.key().split("-")) {
+            name.append(name.length() == 0 ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+        }
+        return name.append("Saturation").toString();
+    }
+
+    private static final class Signal {
+
+        private final String name;
+
+        private final Number value;
+
+        private final double high;
+
+        private final double low;
+
+        Signal(String name, Number value, double high, double low) {
+            this.name = name;
+            this.value = value;
+            this.high = high;
+            this.low = low;
+        }
+
+        boolean isHigh() {
+            return value.doubleValue() >= high;
+        }
+
+        boolean isLow() {
+            return value.doubleValue() <= low;
+        }
+
+        @Override
+        public String toString() {
+            return name + "=" + value;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.redhat.emergency.response.incident.rest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+import java.util.function.Function;
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * On-demand profiling with {@link JfrProfiler}: starts a time-boxed recording, then serves its file and its summary
+ * once it is done. Not found unless <code>incident.admin.profiling.enabled</code> is set.
+ * <p>
+ * The endpoints have no authentication of their own: once enabled, anyone reaching the service can profile it and
+ * download the recordings, which hold class and method names, thread names and stack traces. Enable them only where
+ * <code>/admin</code> is not exposed beyond the operators, e.g. not through the route of the service.
+ */
+@Path("/admin/profiling")
+public class ProfilingResource {
+
+    @Inject
+    JfrProfiler profiler;
+
+    @ConfigProperty(name = "incident.admin.profiling.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "incident.admin.profiling.default-duration", defaultValue = "PT60S")
+    Duration defaultDuration;
+
+    @POST
+    @Path("/recordings")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response start(@QueryParam("duration") String duration) {
+        return guarded(() -> {
+            long id = profiler.start(duration == null ? defaultDuration : Duration.parse(duration));
+            return Response.accepted(profiler.status(id).map(JsonObject::encode).orElse(null))
+                    .location(URI.create("/admin/profiling/recordings/" + id)).build();
+        });
+    }
+
+    @GET
+    @Path("/recordings/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response status(@PathParam("id") long id) {
+        return guarded(() -> found(profiler.status(id), JsonObject::encode));
+    }
+
+    @GET
+    @Path("/recordings/{id}/file")
+    @Produces(MediaType.APPLICATION_OCTET_STREAM)
+    public Response file(@PathParam("id") long id) {
+        return guarded(() -> found(profiler.file(id), file -> Response.ok((StreamingOutput) out -> profiler.copy(id, out))
+                .header("Content-Disposition", "attachment; filename=\"incident-service-" + id + ".jfr\"").build()));
+    }
+
+    @GET
+    @Path("/recordings/{id}/summary")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response summary(@PathParam("id") long id) {
+        return guarded(() -> found(profiler.summary(id), JsonObject::encode));
+    }
+
+    private Response guarded(ProfilingCall call) {
+        if (!enabled) {
+            return Response.status(Response.Status.NOT_FOUND).build();
+        }
+        try {
+            return call.call();
+        } catch (IllegalStateException e) {
+            return Response.status(Response.Status.CONFLICT).entity(e.getMessage()).type(MediaType.TEXT_PLAIN).build();
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Response.status(Response.Status.BAD_REQUEST).entity(e.getMessage()).type(MediaType.TEXT_PLAIN).build();
+        } catch (Exception e) {
+            return Response.serverError().entity(e.getMessage()).type(MediaType.TEXT_PLAIN).build();
+        }
+    }
+
+    private static <T> Response found(Optional<T> value, Function<T, Object> entity) {
+        return value.map(v -> {
+            Object body = entity.apply(v);
+            return body instanceof Response ? (Response) body : Response.ok(body).build();
+        }).orElse(Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    private interface ProfilingCall {
+        Response call() throws Exception;
+    }
+}
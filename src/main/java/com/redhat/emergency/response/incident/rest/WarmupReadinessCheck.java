@@ -0,0 +1,31 @@
+package com.redhat.emergency.response.incident.rest;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import com.redhat.emergency.response.incident.service.IncidentWarmup;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.HealthCheckResponseBuilder;
+import org.eclipse.microprofile.health.Readiness;
+
+/**
+ * Not ready until the {@link IncidentWarmup} is done, then reports its duration and rounds.
+ */
+@Readiness
+@ApplicationScoped
+public class WarmupReadinessCheck implements HealthCheck {
+
+    @Inject
+    IncidentWarmup warmup;
+
+    @Override
+    public HealthCheckResponse call() {
+        HealthCheckResponseBuilder response = HealthCheckResponse.named("Warm-up").state(warmup.isDone());
+        if (warmup.isDone() && warmup.report().containsKey("durationMs")) {
+            response.withData("durationMs", warmup.report().getLong("durationMs"))
+                    .withData("rounds", warmup.report().getInteger("rounds"));
+        }
+        return response.build();
+    }
+}
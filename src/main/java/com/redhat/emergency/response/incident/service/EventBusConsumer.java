@@ -1,10 +1,13 @@
 package com.redhat.emergency.response.incident.service;
 
 import java.time.OffsetDateTime;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 
-import io.quarkus.vertx.ConsumeEvent;
+import com.redhat.emergency.response.incident.metrics.PipelineMetrics;
 import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.operators.multi.processors.UnicastProcessor;
 import io.smallrye.reactive.messaging.ce.OutgoingCloudEventMetadata;
@@ -21,14 +24,40 @@ public class EventBusConsumer {
 
     private static final Logger log = LoggerFactory.getLogger(EventBusConsumer.class);
 
+    /**
+     * Metadata common to the outgoing events, built once, and at build time in a native image. Its id is replaced by
+     * a new one for every event.
+     */
+    private static final OutgoingCloudEventMetadata<Object> REPORTED_EVENT = OutgoingCloudEventMetadata.builder()
+            .withType("IncidentReportedEvent").build();
+
     @Inject
     IncidentService service;
 
+    @Inject
+    IncidentResetJobs resetJobs;
+
+    @Inject
+    PipelineMetrics metrics;
+
     private final UnicastProcessor<JsonObject> processor = UnicastProcessor.create();
 
-    @ConsumeEvent(value = "incident-service", blocking = true)
+    private final AtomicInteger backlog = new AtomicInteger();
+
     public void consume(Message<JsonObject> msg) {
+        long start = System.nanoTime();
         String action = msg.headers().get("action");
+        PipelineMetrics.Outcome outcome = PipelineMetrics.Outcome.FAILURE;
+        try {
+            if (handle(action, msg)) {
+                outcome = PipelineMetrics.Outcome.SUCCESS;
+            }
+        } finally {
+            metrics.record(PipelineMetrics.Stage.HANDLER, PipelineMetrics.Action.of(action), outcome, start);
+        }
+    }
+
+    private boolean handle(String action, Message<JsonObject> msg) {
         switch (action) {
             case "incidents" :
                 incidents(msg);
@@ -45,22 +74,34 @@ public class EventBusConsumer {
             case "reset" :
                 reset(msg);
                 break;
+            case "resetStatus" :
+                resetStatus(msg);
+                break;
             case "createIncident":
                 createIncident(msg);
                 break;
             default:
                 msg.fail(-1, "Unsupported operation");
+                return false;
         }
+        return true;
     }
 
     private void incidents(Message<JsonObject> msg) {
-        JsonObject jsonObject = new JsonObject().put("incidents", service.incidents());
+        JsonArray incidentsArray = service.incidents();
+        if (includeArchived(msg)) {
+            incidentsArray.addAll(service.archivedIncidents());
+        }
+        JsonObject jsonObject = new JsonObject().put("incidents", incidentsArray);
         msg.replyAndForget(jsonObject);
     }
 
     private void incidentById(Message<JsonObject> msg) {
         String id = msg.body().getString("incidentId");
         JsonObject incident = service.incidentByIncidentId(id);
+        if (incident == null && includeArchived(msg)) {
+            incident = service.archivedIncidentByIncidentId(id);
+        }
         if (incident == null) {
             msg.replyAndForget(new JsonObject());
         } else {
@@ -71,6 +112,9 @@ public class EventBusConsumer {
     private void incidentsByStatus(Message<JsonObject> msg) {
         String status = msg.body().getString("status");
         JsonArray incidentsArray = service.incidentsByStatus(status);
+        if (includeArchived(msg)) {
+            incidentsArray.addAll(service.archivedIncidentsByStatus(status));
+        }
         JsonObject jsonObject = new JsonObject().put("incidents", incidentsArray);
         msg.replyAndForget(jsonObject);
     }
@@ -78,21 +122,44 @@ public class EventBusConsumer {
     private void incidentsByName(Message<JsonObject> msg) {
         String name = msg.body().getString("name");
         JsonArray incidentsArray = service.incidentsByVictimName(name);
+        if (includeArchived(msg)) {
+            incidentsArray.addAll(service.archivedIncidentsByVictimName(name));
+        }
         JsonObject jsonObject = new JsonObject().put("incidents", incidentsArray);
         msg.replyAndForget(jsonObject);
     }
 
+    private boolean includeArchived(Message<JsonObject> msg) {
+        return msg.body().getBoolean("includeArchived", false);
+    }
+
     private void reset(Message<JsonObject> msg) {
-        service.reset();
-        msg.replyAndForget(new JsonObject());
+        msg.replyAndForget(new JsonObject().put("job", resetJobs.start()));
+    }
+
+    private void resetStatus(Message<JsonObject> msg) {
+        JsonObject job = resetJobs.status(msg.body().getString("jobId"));
+        if (job == null) {
+            msg.replyAndForget(new JsonObject());
+        } else {
+            msg.replyAndForget(new JsonObject().put("job", job));
+        }
     }
 
     private void createIncident(Message<JsonObject> msg) {
         JsonObject created = service.create(msg.body());
+        backlog.incrementAndGet();
         processor.onNext(created);
         msg.replyAndForget(new JsonObject());
     }
 
+    /**
+     * Events emitted and not yet acknowledged by the broker: the unbounded processor queue plus the records in flight.
+     */
+    public int backlog() {
+        return backlog.get();
+    }
+
     @Outgoing("incident-event-1")
     public Multi<org.eclipse.microprofile.reactive.messaging.Message<String>> source() {
         return processor.onItem().transform(this::toMessage);
@@ -100,8 +167,20 @@ public class EventBusConsumer {
 
     private org.eclipse.microprofile.reactive.messaging.Message<String> toMessage(JsonObject incident) {
         log.debug("IncidentReportedEvent: " + incident);
+        long start = System.nanoTime();
         return KafkaRecord.of(incident.getString("id"), incident.toString())
-                .addMetadata(OutgoingCloudEventMetadata.builder().withType("IncidentReportedEvent")
+                .withAck(() -> {
+                    backlog.decrementAndGet();
+                    metrics.record(PipelineMetrics.Stage.PUBLISH, PipelineMetrics.Action.INCIDENT_REPORTED_EVENT, PipelineMetrics.Outcome.SUCCESS, start);
+                    return CompletableFuture.completedFuture(null);
+                })
+                .withNack(t -> {
+                    backlog.decrementAndGet();
+                    metrics.record(PipelineMetrics.Stage.PUBLISH, PipelineMetrics.Action.INCIDENT_REPORTED_EVENT, PipelineMetrics.Outcome.FAILURE, start);
+                    return CompletableFuture.completedFuture(null);
+                })
+                .addMetadata(OutgoingCloudEventMetadata.from(REPORTED_EVENT)
+                        .withId(UUID.randomUUID().toString())
                         .withTimestamp(OffsetDateTime.now().toZonedDateTime()).build());
     }
 }
@@ -0,0 +1,113 @@
+package com.redhat.emergency.response.incident.service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.transaction.Transactional;
+
+import com.redhat.emergency.response.incident.model.IncidentStatus;
+import com.redhat.emergency.response.incident.repository.IncidentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.Vertx;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Periodically moves incidents in a terminal status out of the live <code>reported_incident</code> table into
+ * <code>archived_incident</code>, in chunks of <code>incident.archive.chunk-size</code> rows per transaction, within the
+ * background partition of the connections.
+ * <p>
+ * The live table only holds the incidents being handled, plus the terminal ones for <code>incident.archive.age</code>
+ * after their report, which lets the last commands of an incident reach it before it moves. Incidents are rescued
+ * within minutes during an exercise: the default age of 15 minutes keeps the live table down to the incidents of the
+ * last quarter of an hour, whatever the length of the exercise. Archived incidents remain readable. Replicas archive
+ * concurrently: each one skips the rows locked by the others.
+ */
+@ApplicationScoped
+public class IncidentArchiver {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentArchiver.class);
+
+    static final List<String> TERMINAL_STATUSES = Arrays.asList(IncidentStatus.RESCUED.name(), IncidentStatus.CANCELLED.name());
+
+    @Inject
+    IncidentRepository repository;
+
+    @Inject
+    IncidentPriorityScheduler scheduler;
+
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "incident.archive.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "incident.archive.interval", defaultValue = "PT1M")
+    Duration interval;
+
+    @ConfigProperty(name = "incident.archive.age", defaultValue = "PT15M")
+    Duration age;
+
+    @ConfigProperty(name = "incident.archive.chunk-size", defaultValue = "500")
+    int chunkSize;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private Counter archivedCounter;
+
+    void onStart(@Observes StartupEvent e) {
+        archivedCounter = Counter.builder("incident.archive.archived").register(meterRegistry);
+        if (enabled) {
+            vertx.setPeriodic(interval.toMillis(), id -> vertx.<Integer>executeBlocking(promise -> promise.complete(archive()), true, ar -> {
+                if (ar.failed()) {
+                    log.error("Error archiving incidents", ar.cause());
+                }
+            }));
+        }
+    }
+
+    /**
+     * Archives all incidents in a terminal status reported longer than <code>incident.archive.age</code> ago.
+     *
+     * @return the number of archived incidents, or 0 when an archive run is already in progress
+     */
+    public int archive() {
+        if (!running.compareAndSet(false, true)) {
+            return 0;
+        }
+        try {
+            // there is no closing time on an incident: the reported time is the best proxy for its age
+            Instant before = Instant.now().minus(age);
+            int total = 0;
+            int archived;
+            do {
+                archived = scheduler.background(() -> archiveChunk(before));
+                total += archived;
+            } while (archived == chunkSize);
+            if (total > 0) {
+                log.info("Archived " + total + " incidents reported before " + before);
+            }
+            return total;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    int archiveChunk(Instant before) {
+        int archived = repository.archive(TERMINAL_STATUSES, before, chunkSize);
+        archivedCounter.increment(archived);
+        return archived;
+    }
+}
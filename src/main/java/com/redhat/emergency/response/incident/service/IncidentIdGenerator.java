@@ -0,0 +1,16 @@
+package com.redhat.emergency.response.incident.service;
+
+import java.util.UUID;
+
+/**
+ * Generates the business id of new incidents.
+ * The implementation is selected with <code>incident.id.generator</code>, see {@link IncidentIdGeneratorProducer}.
+ * An application bean implementing this interface replaces the configured generator.
+ */
+public interface IncidentIdGenerator {
+
+    IncidentIdGenerator RANDOM = () -> UUID.randomUUID().toString();
+
+    String nextId();
+
+}
@@ -0,0 +1,29 @@
+package com.redhat.emergency.response.incident.service;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.inject.Produces;
+import javax.inject.Singleton;
+
+import io.quarkus.arc.DefaultBean;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+@ApplicationScoped
+public class IncidentIdGeneratorProducer {
+
+    @ConfigProperty(name = "incident.id.generator", defaultValue = "time-ordered")
+    String generator;
+
+    @Produces
+    @Singleton
+    @DefaultBean
+    IncidentIdGenerator incidentIdGenerator() {
+        switch (generator) {
+            case "time-ordered":
+                return new TimeOrderedIncidentIdGenerator();
+            case "random":
+                return IncidentIdGenerator.RANDOM;
+            default:
+                throw new IllegalArgumentException("Unsupported incident id generator '" + generator + "'");
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.redhat.emergency.response.incident.service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.transaction.Transactional;
+
+import com.redhat.emergency.response.incident.model.IncidentLocation;
+import com.redhat.emergency.response.incident.repository.IncidentRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Write-behind buffer for coordinate-only incident updates.
+ * <p>
+ * The latest position of every incident is kept in memory and served to the reads right away. The buffer is
+ * written to the database in a single batched UPDATE every <code>incident.location.write-behind.interval-ms</code>,
+ * when it holds more than <code>incident.location.write-behind.max-size</code> positions, and on shutdown.
+ * The interval bounds the positions lost if the instance dies. Flushed incidents count as recent writes, read from
+ * the primary until the read replica has caught up with them.
+ */
+@ApplicationScoped
+public class IncidentLocationBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentLocationBuffer.class);
+
+    @Inject
+    IncidentRepository repository;
+
+    @Inject
+    RecentIncidentWrites recentWrites;
+
+    @Inject
+    IncidentPriorityScheduler scheduler;
+
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "incident.location.write-behind.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "incident.location.write-behind.interval-ms", defaultValue = "500")
+    long interval;
+
+    @ConfigProperty(name = "incident.location.write-behind.max-size", defaultValue = "10000")
+    int maxSize;
+
+    private final Map<String, IncidentLocation> locations = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    private Timer flushTimer;
+
+    private Counter flushedCounter;
+
+    void onStart(@Observes StartupEvent e) {
+        String name = "incident.location.write-behind";
+        Gauge.builder(name + ".size", locations, Map::size).register(meterRegistry);
+        flushTimer = Timer.builder(name + ".flush").register(meterRegistry);
+        flushedCounter = Counter.builder(name + ".flushed").register(meterRegistry);
+        if (enabled) {
+            vertx.setPeriodic(interval, id -> scheduleFlush());
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent e) {
+        if (enabled) {
+            flush();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public IncidentLocation get(String incidentId) {
+        return locations.get(incidentId);
+    }
+
+    public void put(IncidentLocation location) {
+        locations.put(location.getIncidentId(), location);
+        if (locations.size() >= maxSize) {
+            scheduleFlush();
+        }
+    }
+
+    /**
+     * Drops the buffered position of an incident about to be written synchronously, so that an older buffered
+     * position can't overwrite it afterwards. Waits for a flush in progress, which may hold that position.
+     */
+    public synchronized void discard(String incidentId) {
+        locations.remove(incidentId);
+    }
+
+    /**
+     * Replaces the coordinates of the incident with its buffered position, if any.
+     */
+    public JsonObject overlay(JsonObject incident) {
+        IncidentLocation location = locations.get(incident.getString("id"));
+        if (location != null) {
+            incident.put("lat", new BigDecimal(location.getLatitude()).doubleValue())
+                    .put("lon", new BigDecimal(location.getLongitude()).doubleValue());
+        }
+        return incident;
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            vertx.<Integer>executeBlocking(promise -> {
+                flushScheduled.set(false);
+                promise.complete(flush());
+            }, true, ar -> {
+                if (ar.failed()) {
+                    log.error("Error flushing buffered incident locations", ar.cause());
+                }
+            });
+        }
+    }
+
+    /**
+     * Writes the buffered positions to the database.
+     *
+     * @return the number of written positions
+     */
+    public synchronized int flush() {
+        if (locations.isEmpty()) {
+            return 0;
+        }
+        // sorted by id: concurrent flushes from several instances lock the rows in the same order
+        List<IncidentLocation> batch = new ArrayList<>(locations.values());
+        batch.sort(Comparator.comparingLong(IncidentLocation::getId));
+        long start = System.nanoTime();
+        int written = scheduler.background(() -> write(batch));
+        // once committed: a read between the eviction and the commit would cache the previous position again
+        repository.evict(batch.stream().map(IncidentLocation::getId).collect(Collectors.toList()));
+        // and before they leave the buffer: the reads of these incidents go to the primary until the replica caught up
+        batch.forEach(location -> recentWrites.record(location.getIncidentId()));
+        // positions updated while the batch was written stay in the buffer for the next flush
+        batch.forEach(location -> locations.remove(location.getIncidentId(), location));
+        flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        flushedCounter.increment(written);
+        return written;
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    int write(List<IncidentLocation> batch) {
+        return repository.updateLocations(batch);
+    }
+}
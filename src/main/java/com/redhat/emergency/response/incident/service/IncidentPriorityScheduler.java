@@ -0,0 +1,313 @@
+package com.redhat.emergency.response.incident.service;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.Config;
+import org.eclipse.microprofile.config.ConfigProvider;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the blocking incident work on one bounded pool per operation class (bulkhead), so that slow list reads or
+ * admin operations can't starve the point reads and the writes. A pool that has all its threads busy and its queue
+ * full rejects new work with a {@link RejectedExecutionException}.
+ * <p>
+ * The connections of each datasource are partitioned between its pools: a task of a pool holds one of the
+ * <code>incident.bulkhead.&lt;key&gt;.connections</code> permits of that pool while it runs, and the background jobs
+ * (archiving, reset, write-behind flush) one of the <code>incident.datasource.background-connections</code> permits,
+ * through {@link #background(Supplier)}. The partitions of a datasource must fit in its max-size, or the application
+ * fails to start: a pool then can't take the connections of another one, whatever its load.
+ * <p>
+ * Within a pool the work is ordered by urgency instead of arrival. Every task gets a deadline: its arrival time plus
+ * the maximum wait of its priority class. The queue is served earliest deadline first, so urgent work overtakes
+ * routine work, but routine work is never held back longer than its own maximum wait by a steady flow of urgent work.
+ */
+@ApplicationScoped
+public class IncidentPriorityScheduler {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentPriorityScheduler.class);
+
+    public enum Priority {
+        CRITICAL, HIGH, NORMAL
+    }
+
+    /**
+     * Operation classes, each with its own pool. The reads use connections of the read datasource, the writes and
+     * admin operations connections of the primary one. The reads of archived or recently written incidents go to the
+     * primary as well, outside of its partitions.
+     */
+    public enum Bulkhead {
+        POINT_READ("point-read", true), LIST_READ("list-read", true), WRITE("write", false), ADMIN("admin", false);
+
+        private final String key;
+
+        private final boolean read;
+
+        Bulkhead(String key, boolean read) {
+            this.key = key;
+            this.read = read;
+        }
+
+        public String key() {
+            return key;
+        }
+    }
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "incident.priority.critical.min-people", defaultValue = "3")
+    int criticalMinPeople;
+
+    @ConfigProperty(name = "incident.priority.high.min-people", defaultValue = "10")
+    int highMinPeople;
+
+    @ConfigProperty(name = "incident.priority.critical.max-wait-ms", defaultValue = "0")
+    long criticalMaxWait;
+
+    @ConfigProperty(name = "incident.priority.high.max-wait-ms", defaultValue = "100")
+    long highMaxWait;
+
+    @ConfigProperty(name = "incident.priority.normal.max-wait-ms", defaultValue = "500")
+    long normalMaxWait;
+
+    @ConfigProperty(name = "incident.datasource.background-connections", defaultValue = "2")
+    int backgroundConnections;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final Map<Priority, Timer> waitTimers = new EnumMap<>(Priority.class);
+
+    private final Map<Priority, Long> maxWaits = new EnumMap<>(Priority.class);
+
+    private final Map<Bulkhead, Pool> pools = new EnumMap<>(Bulkhead.class);
+
+    private Semaphore background;
+
+    private Timer backgroundWait;
+
+    void onStart(@Observes StartupEvent e) {
+        maxWaits.put(Priority.CRITICAL, TimeUnit.MILLISECONDS.toNanos(criticalMaxWait));
+        maxWaits.put(Priority.HIGH, TimeUnit.MILLISECONDS.toNanos(highMaxWait));
+        maxWaits.put(Priority.NORMAL, TimeUnit.MILLISECONDS.toNanos(normalMaxWait));
+        for (Priority priority : Priority.values()) {
+            waitTimers.put(priority, Timer.builder("incident.priority.queue.wait")
+                    .tag("priority", priority.name().toLowerCase())
+                    .publishPercentiles(0.5, 0.95, 0.99)
+                    .register(meterRegistry));
+        }
+        Config config = ConfigProvider.getConfig();
+        for (Bulkhead bulkhead : Bulkhead.values()) {
+            String prefix = "incident.bulkhead." + bulkhead.key;
+            int threads = config.getOptionalValue(prefix + ".threads", Integer.class).orElse(10);
+            int queueSize = config.getOptionalValue(prefix + ".queue-size", Integer.class).orElse(100);
+            int connections = config.getOptionalValue(prefix + ".connections", Integer.class).orElse(threads);
+            pools.put(bulkhead, new Pool(bulkhead, threads, queueSize, connections));
+        }
+        background = new Semaphore(backgroundConnections);
+        backgroundWait = Timer.builder("incident.bulkhead.connection.wait").tag("bulkhead", "background").register(meterRegistry);
+        checkConnections(config, false, "quarkus.datasource.jdbc.max-size", backgroundConnections);
+        checkConnections(config, true, "quarkus.datasource.\"read\".jdbc.max-size", 0);
+    }
+
+    void onStop(@Observes ShutdownEvent e) throws InterruptedException {
+        for (Pool pool : pools.values()) {
+            pool.executor.shutdown();
+        }
+        for (Pool pool : pools.values()) {
+            pool.executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Urgency of the work on an incident, derived from its payload. Fields missing from the payload, as in partial
+     * updates, count as not urgent.
+     */
+    public Priority priorityOf(JsonObject incident) {
+        if (incident == null) {
+            return Priority.NORMAL;
+        }
+        boolean medicalNeeded = Boolean.TRUE.equals(incident.getBoolean("medicalNeeded"));
+        int people = incident.getInteger("numberOfPeople", 0);
+        if (medicalNeeded && people >= criticalMinPeople) {
+            return Priority.CRITICAL;
+        }
+        if (medicalNeeded || people >= highMinPeople) {
+            return Priority.HIGH;
+        }
+        return Priority.NORMAL;
+    }
+
+    /**
+     * @throws RejectedExecutionException when the pool of the bulkhead is saturated
+     */
+    public void execute(Bulkhead bulkhead, Priority priority, Runnable runnable) {
+        Pool pool = pools.get(bulkhead);
+        pool.execute(new Task(pool, priority, runnable));
+    }
+
+    public Executor executor(Bulkhead bulkhead, Priority priority) {
+        return runnable -> execute(bulkhead, priority, runnable);
+    }
+
+    /**
+     * Share of the running and queued tasks in the capacity of the bulkhead, from 0 to 1.
+     */
+    public double saturation(Bulkhead bulkhead) {
+        Pool pool = pools.get(bulkhead);
+        return 1 - pool.capacity.availablePermits() / (double) pool.size;
+    }
+
+    /**
+     * Runs a background job on the primary datasource within its partition of the connections, waiting for a free
+     * connection of the partition first.
+     */
+    public <T> T background(Supplier<T> job) {
+        long start = System.nanoTime();
+        background.acquireUninterruptibly();
+        backgroundWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        try {
+            return job.get();
+        } finally {
+            background.release();
+        }
+    }
+
+    private void checkConnections(Config config, boolean read, String maxSizeProperty, int reserved) {
+        int maxSize = config.getOptionalValue(maxSizeProperty, Integer.class).orElse(20);
+        int connections = reserved + pools.values().stream().filter(pool -> pool.bulkhead.read == read)
+                .mapToInt(pool -> pool.connections).sum();
+        if (connections > maxSize) {
+            throw new IllegalStateException("The partitions of the " + (read ? "read" : "primary") + " datasource add up to "
+                    + connections + " connections, over its max-size of " + maxSize);
+        }
+        log.info("The partitions of the " + (read ? "read" : "primary") + " datasource use " + connections + " of its "
+                + maxSize + " connections");
+    }
+
+    private class Pool {
+
+        private final Bulkhead bulkhead;
+
+        private final int threads;
+
+        private final int size;
+
+        private final int connections;
+
+        // connections held by the running tasks: the partition of the pool in its datasource
+        private final Semaphore connectionPermits;
+
+        private final Timer connectionWait;
+
+        private final ThreadPoolExecutor executor;
+
+        // running and queued tasks: the priority queue itself is unbounded
+        private final Semaphore capacity;
+
+        private final Counter rejected;
+
+        Pool(Bulkhead bulkhead, int threads, int queueSize, int connections) {
+            this.bulkhead = bulkhead;
+            this.threads = threads;
+            this.size = threads + queueSize;
+            this.connections = connections;
+            this.connectionPermits = new Semaphore(connections);
+            this.connectionWait = Timer.builder("incident.bulkhead.connection.wait").tag("bulkhead", bulkhead.key).register(meterRegistry);
+            this.capacity = new Semaphore(size);
+            AtomicInteger count = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new PriorityBlockingQueue<>(),
+                    r -> {
+                        Thread thread = new Thread(r, "incident-" + bulkhead.key + "-" + count.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            Gauge.builder("incident.bulkhead.active", executor, ThreadPoolExecutor::getActiveCount)
+                    .tag("bulkhead", bulkhead.key).register(meterRegistry);
+            Gauge.builder("incident.bulkhead.queued", executor, ex -> ex.getQueue().size())
+                    .tag("bulkhead", bulkhead.key).register(meterRegistry);
+            Gauge.builder("incident.bulkhead.utilization", executor, ex -> (double) ex.getActiveCount() / threads)
+                    .tag("bulkhead", bulkhead.key).register(meterRegistry);
+            this.rejected = Counter.builder("incident.bulkhead.rejected").tag("bulkhead", bulkhead.key).register(meterRegistry);
+        }
+
+        void execute(Task task) {
+            if (!capacity.tryAcquire()) {
+                rejected.increment();
+                throw new RejectedExecutionException("Bulkhead '" + bulkhead.key + "' is saturated");
+            }
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException e) {
+                capacity.release();
+                throw e;
+            }
+        }
+    }
+
+    private class Task implements Runnable, Comparable<Task> {
+
+        private final Pool pool;
+
+        private final Priority priority;
+
+        private final Runnable runnable;
+
+        private final long enqueued = System.nanoTime();
+
+        private final long deadline;
+
+        private final long seq = sequence.incrementAndGet();
+
+        Task(Pool pool, Priority priority, Runnable runnable) {
+            this.pool = pool;
+            this.priority = priority;
+            this.runnable = runnable;
+            this.deadline = enqueued + maxWaits.get(priority);
+        }
+
+        @Override
+        public void run() {
+            long dequeued = System.nanoTime();
+            waitTimers.get(priority).record(dequeued - enqueued, TimeUnit.NANOSECONDS);
+            try {
+                pool.connectionPermits.acquireUninterruptibly();
+                pool.connectionWait.record(System.nanoTime() - dequeued, TimeUnit.NANOSECONDS);
+                try {
+                    runnable.run();
+                } finally {
+                    pool.connectionPermits.release();
+                }
+            } finally {
+                pool.capacity.release();
+            }
+        }
+
+        @Override
+        public int compareTo(Task other) {
+            int byDeadline = Long.compare(deadline - other.deadline, 0);
+            return byDeadline != 0 ? byDeadline : Long.compare(seq, other.seq);
+        }
+    }
+}
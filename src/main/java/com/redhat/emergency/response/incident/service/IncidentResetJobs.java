@@ -0,0 +1,178 @@
+package com.redhat.emergency.response.incident.service;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs the reset of the incidents, live and archived, as a background job, either as a <code>TRUNCATE</code> or as a
+ * sequence of short transactions deleting <code>incident.reset.chunk-size</code> incidents each, so that the normal
+ * traffic keeps being served meanwhile, within the background partition of the connections. Only incidents reported
+ * before the job started are deleted: the live ones first, then the archived ones, including those archived while the
+ * live ones were being deleted. The reported time is set by the replica creating the incident: an incident created
+ * on another replica within the clock skew between the two may be deleted, or kept, wrongly.
+ * <p>
+ * The jobs are held in memory by the pod that started them: their status is only known to that pod, and is lost
+ * when it restarts. Behind a service spreading requests over several replicas, the status of a job may be answered
+ * by another pod, as not found, and another pod may start a concurrent job.
+ */
+@ApplicationScoped
+public class IncidentResetJobs {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentResetJobs.class);
+
+    private static final int MAX_JOBS = 20;
+
+    @Inject
+    IncidentService service;
+
+    @Inject
+    IncidentPriorityScheduler scheduler;
+
+    @Inject
+    Vertx vertx;
+
+    @ConfigProperty(name = "incident.reset.truncate", defaultValue = "false")
+    boolean truncate;
+
+    @ConfigProperty(name = "incident.reset.chunk-size", defaultValue = "1000")
+    int chunkSize;
+
+    @ConfigProperty(name = "incident.reset.chunk-pause-ms", defaultValue = "10")
+    long chunkPause;
+
+    private final Map<String, Job> jobs = new LinkedHashMap<String, Job>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+            return size() > MAX_JOBS;
+        }
+    };
+
+    private Job running;
+
+    /**
+     * Starts a reset job, or returns the running one.
+     */
+    public JsonObject start() {
+        return start(truncate);
+    }
+
+    synchronized JsonObject start(boolean truncate) {
+        if (running != null) {
+            return running.toJson();
+        }
+        Job job = new Job(UUID.randomUUID().toString(), truncate ? "truncate" : "chunked");
+        jobs.put(job.id, job);
+        running = job;
+        vertx.executeBlocking(promise -> {
+            run(job);
+            promise.complete();
+        }, false, ar -> {});
+        return job.toJson();
+    }
+
+    public synchronized JsonObject status(String jobId) {
+        Job job = jobs.get(jobId);
+        return job == null ? null : job.toJson();
+    }
+
+    private void run(Job job) {
+        log.info("Reset job " + job.id + " started (" + job.mode + ")");
+        String status = "COMPLETED";
+        try {
+            if ("truncate".equals(job.mode)) {
+                scheduler.background(() -> {
+                    service.truncate();
+                    return null;
+                });
+            } else {
+                // not bounded by the ids: other replicas keep allocating ids from the blocks of the sequence they hold
+                Instant before = job.started;
+                deleteInChunks(after -> scheduler.background(() -> service.resetChunk(after, before, chunkSize)), count -> job.deleted += count);
+                deleteInChunks(after -> scheduler.background(() -> service.resetArchivedChunk(after, before, chunkSize)),
+                        count -> job.archivedDeleted += count);
+            }
+            log.info("Reset job " + job.id + " completed. Deleted " + job.deleted + " incidents and " + job.archivedDeleted + " archived incidents");
+        } catch (Exception e) {
+            log.error("Reset job " + job.id + " failed", e);
+            job.error = String.valueOf(e);
+            status = "FAILED";
+        } finally {
+            job.finished = Instant.now();
+            synchronized (this) {
+                job.status = status;
+                running = null;
+            }
+        }
+    }
+
+    /**
+     * Deletes chunks of incidents, in the order of their ids, until a chunk comes out short.
+     */
+    private void deleteInChunks(LongFunction<List<Long>> deleteChunkAfter, LongConsumer progress) throws InterruptedException {
+        long after = 0;
+        List<Long> deleted;
+        do {
+            deleted = deleteChunkAfter.apply(after);
+            if (!deleted.isEmpty()) {
+                after = deleted.get(deleted.size() - 1);
+                progress.accept(deleted.size());
+                if (chunkPause > 0) {
+                    Thread.sleep(chunkPause);
+                }
+            }
+        } while (deleted.size() == chunkSize);
+    }
+
+    private static class Job {
+
+        private final String id;
+
+        private final String mode;
+
+        private final Instant started = Instant.now();
+
+        private volatile Instant finished;
+
+        private volatile String status = "RUNNING";
+
+        private volatile long deleted;
+
+        private volatile long archivedDeleted;
+
+        private volatile String error;
+
+        Job(String id, String mode) {
+            this.id = id;
+            this.mode = mode;
+        }
+
+        JsonObject toJson() {
+            JsonObject json = new JsonObject().put("jobId", id)
+                    .put("status", status)
+                    .put("mode", mode)
+                    .put("deleted", deleted)
+                    .put("archivedDeleted", archivedDeleted)
+                    .put("started", started.toEpochMilli());
+            if (finished != null) {
+                json.put("finished", finished.toEpochMilli());
+            }
+            if (error != null) {
+                json.put("error", error);
+            }
+            return json;
+        }
+    }
+}
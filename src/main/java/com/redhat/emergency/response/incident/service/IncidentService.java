@@ -3,21 +3,32 @@ package com.redhat.emergency.response.incident.service;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.Instant;
-import java.util.UUID;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import javax.persistence.OptimisticLockException;
 import javax.transaction.Transactional;
 
 import com.redhat.emergency.response.incident.entity.Incident;
+import com.redhat.emergency.response.incident.model.IncidentLocation;
 import com.redhat.emergency.response.incident.model.IncidentStatus;
+import com.redhat.emergency.response.incident.model.IncidentView;
+import com.redhat.emergency.response.incident.repository.IncidentReadRepository;
 import com.redhat.emergency.response.incident.repository.IncidentRepository;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.quarkus.runtime.StartupEvent;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.hibernate.StaleStateException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,30 +37,58 @@ public class IncidentService {
 
     private static final Logger log = LoggerFactory.getLogger(IncidentService.class);
 
+    private static final Set<String> LOCATION_FIELDS = new HashSet<>(Arrays.asList("id", "lat", "lon"));
+
     @Inject
     IncidentRepository repository;
 
+    @Inject
+    IncidentReadRepository readRepository;
+
+    @Inject
+    RecentIncidentWrites recentWrites;
+
+    @Inject
+    IncidentLocationBuffer locationBuffer;
+
     @Inject
     MeterRegistry meterRegistry;
 
+    @Inject
+    IncidentIdGenerator idGenerator;
+
+    @ConfigProperty(name = "incident.service.update.max-attempts", defaultValue = "5")
+    int updateMaxAttempts;
+
+    @ConfigProperty(name = "incident.service.update.backoff-ms", defaultValue = "10")
+    long updateBackoff;
+
     private Timer createTimer;
 
     private Timer updateTimer;
 
+    private Timer locationTimer;
+
+    private Counter conflictCounter;
+
     void onStart(@Observes StartupEvent e) {
         String name = "incident.service.data.access";
         createTimer = Timer.builder(name).tag("operation", "create").register(meterRegistry);
         updateTimer = Timer.builder(name).tag("operation", "update").register(meterRegistry);
+        locationTimer = Timer.builder(name).tag("operation", "location").register(meterRegistry);
+        conflictCounter = Counter.builder("incident.service.update.conflicts").register(meterRegistry);
     }
 
     @Transactional
     public JsonArray incidents() {
-        return new JsonArray(repository.findAll().stream().map(this::fromEntity).collect(Collectors.toList()));
+        return new JsonArray(readRepository.findAll().stream().map(this::fromView).collect(Collectors.toList()));
     }
 
     public JsonObject create(JsonObject incident) {
         try {
-            return createTimer.recordCallable(() -> doCreate(incident));
+            JsonObject created = createTimer.recordCallable(() -> doCreate(incident));
+            recentWrites.record(created.getString("id"));
+            return created;
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -63,12 +102,83 @@ public class IncidentService {
 
     public JsonObject updateIncident(JsonObject incident) {
         try {
-            return updateTimer.recordCallable(() -> doUpdateIncident(incident));
+            if (locationBuffer.isEnabled() && isLocationOnly(incident)) {
+                return locationTimer.recordCallable(() -> doBufferLocation(incident));
+            }
+            if (incident.getValue("lat") != null || incident.getValue("lon") != null) {
+                locationBuffer.discard(incident.getString("id"));
+            }
+            JsonObject updated = updateTimer.recordCallable(() -> updateIncidentWithRetry(incident));
+            recentWrites.record(incident.getString("id"));
+            return updated;
+        } catch (InterruptedException e) {
+            // interrupted during the backoff between conflicting attempts
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
     }
 
+    private boolean isLocationOnly(JsonObject incident) {
+        return (incident.getValue("lat") != null || incident.getValue("lon") != null)
+                && incident.fieldNames().stream().allMatch(f -> LOCATION_FIELDS.contains(f) || incident.getValue(f) == null);
+    }
+
+    /**
+     * Coordinate-only updates go to the write-behind buffer instead of the database.
+     */
+    @Transactional
+    public JsonObject doBufferLocation(JsonObject incident) {
+        String incidentId = incident.getString("id");
+        Incident current = repository.findByIncidentId(incidentId);
+        if (current == null) {
+            log.warn("Incident with id '" + incidentId + "' not found in the database");
+            return null;
+        }
+        IncidentLocation buffered = locationBuffer.get(incidentId);
+        String latitude = incident.getDouble("lat") != null ? BigDecimal.valueOf(incident.getDouble("lat")).toString()
+                : buffered != null ? buffered.getLatitude() : current.getLatitude();
+        String longitude = incident.getDouble("lon") != null ? BigDecimal.valueOf(incident.getDouble("lon")).toString()
+                : buffered != null ? buffered.getLongitude() : current.getLongitude();
+        locationBuffer.put(new IncidentLocation(current.getId(), incidentId, latitude, longitude));
+        return fromEntity(current);
+    }
+
+    /**
+     * Every attempt runs {@link #doUpdateIncident(JsonObject)} in a new transaction, so a conflicting update
+     * re-reads the current row and re-applies only the fields that differ.
+     */
+    private JsonObject updateIncidentWithRetry(JsonObject incident) throws InterruptedException {
+        int attempt = 1;
+        while (true) {
+            try {
+                return doUpdateIncident(incident);
+            } catch (RuntimeException e) {
+                if (!isConflict(e)) {
+                    throw e;
+                }
+                conflictCounter.increment();
+                if (attempt >= updateMaxAttempts) {
+                    log.warn("Incident with id '" + incident.getString("id") + "' could not be updated after " + attempt + " conflicting attempts");
+                    throw e;
+                }
+                // full jitter: spread the competing writers instead of having them collide again in lockstep
+                Thread.sleep(ThreadLocalRandom.current().nextLong(updateBackoff << Math.min(attempt, 16)) + 1);
+                attempt++;
+            }
+        }
+    }
+
+    private boolean isConflict(Throwable t) {
+        for (Throwable cause = t; cause != null; cause = cause.getCause() == cause ? null : cause.getCause()) {
+            if (cause instanceof OptimisticLockException || cause instanceof StaleStateException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Transactional
     public JsonObject doUpdateIncident(JsonObject incident) {
         Incident current = repository.findByIncidentId(incident.getString("id"));
@@ -76,6 +186,14 @@ public class IncidentService {
             log.warn("Incident with id '" + incident.getString("id") + "' not found in the database");
             return null;
         }
+        applyUpdate(current, incident);
+        return fromEntity(current);
+    }
+
+    /**
+     * Sets the fields of the update that differ from the current state of the incident.
+     */
+    void applyUpdate(Incident current, JsonObject incident) {
         if (incident.getDouble("lat") != null && !BigDecimal.valueOf(incident.getDouble("lat")).toString().equals(current.getLatitude())) {
             current.setLatitude(BigDecimal.valueOf(incident.getDouble("lat")).toString());
         }
@@ -97,34 +215,69 @@ public class IncidentService {
         if (incident.getString("status") != null && !incident.getString("status").equals(current.getStatus())) {
             current.setStatus(incident.getString("status"));
         }
-        return fromEntity(current);
     }
 
+    /**
+     * Served by the read replica, unless the incident was written recently: the replica may not have caught up yet.
+     */
     @Transactional
     public JsonObject incidentByIncidentId(String incidentId) {
-        return fromEntity(repository.findByIncidentId(incidentId));
+        if (recentWrites.isRecent(incidentId)) {
+            return fromEntity(repository.findByIncidentId(incidentId));
+        }
+        return fromEntity(readRepository.findByIncidentId(incidentId));
     }
 
     @Transactional
     public JsonArray incidentsByStatus(String status) {
-        return new JsonArray(repository.findByStatus(status).stream().map(this::fromEntity).collect(Collectors.toList()));
+        return new JsonArray(readRepository.findByStatus(status).stream().map(this::fromView).collect(Collectors.toList()));
     }
 
     @Transactional
     public JsonArray incidentsByVictimName(String name) {
-        return new JsonArray(repository.findByName(name).stream().map(this::fromEntity).collect(Collectors.toList()));
+        return new JsonArray(readRepository.findByName(name).stream().map(this::fromView).collect(Collectors.toList()));
+    }
+
+    @Transactional
+    public JsonArray archivedIncidents() {
+        return new JsonArray(repository.findArchived().stream().map(this::fromEntity).collect(Collectors.toList()));
+    }
+
+    @Transactional
+    public JsonObject archivedIncidentByIncidentId(String incidentId) {
+        return fromEntity(repository.findArchivedByIncidentId(incidentId));
+    }
+
+    @Transactional
+    public JsonArray archivedIncidentsByStatus(String status) {
+        return new JsonArray(repository.findArchivedByStatus(status).stream().map(this::fromEntity).collect(Collectors.toList()));
     }
 
     @Transactional
-    public void reset() {
-        repository.deleteAll();
+    public JsonArray archivedIncidentsByVictimName(String name) {
+        return new JsonArray(repository.findArchivedByName(name).stream().map(this::fromEntity).collect(Collectors.toList()));
     }
 
-    private JsonObject fromEntity(Incident r) {
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public List<Long> resetChunk(long after, Instant before, int limit) {
+        return repository.deleteReportedBefore(after, before, limit);
+    }
+
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public List<Long> resetArchivedChunk(long after, Instant before, int limit) {
+        return repository.deleteArchivedReportedBefore(after, before, limit);
+    }
+
+    @Transactional
+    public void truncate() {
+        repository.truncate();
+    }
+
+    JsonObject fromEntity(Incident r) {
         if (r == null) {
             return null;
         }
-        return new JsonObject().put("id", r.getIncidentId())
+        return locationBuffer.overlay(new JsonObject().put("id", r.getIncidentId())
                 .put("lat", new BigDecimal(r.getLatitude()).doubleValue())
                 .put("lon", new BigDecimal(r.getLongitude()).doubleValue())
                 .put("medicalNeeded", r.isMedicalNeeded())
@@ -132,12 +285,24 @@ public class IncidentService {
                 .put("victimName", r.getVictimName())
                 .put("victimPhoneNumber", r.getVictimPhoneNumber())
                 .put("status", r.getStatus())
-                .put("timestamp", r.getTimestamp());
+                .put("timestamp", r.getTimestamp()));
+    }
+
+    private JsonObject fromView(IncidentView v) {
+        return locationBuffer.overlay(new JsonObject().put("id", v.getIncidentId())
+                .put("lat", new BigDecimal(v.getLatitude()).doubleValue())
+                .put("lon", new BigDecimal(v.getLongitude()).doubleValue())
+                .put("medicalNeeded", v.isMedicalNeeded())
+                .put("numberOfPeople", v.getNumberOfPeople())
+                .put("victimName", v.getVictimName())
+                .put("victimPhoneNumber", v.getVictimPhoneNumber())
+                .put("status", v.getStatus())
+                .put("timestamp", v.getTimestamp()));
     }
 
-    private Incident toEntity(JsonObject incident) {
+    Incident toEntity(JsonObject incident) {
 
-        String incidentId = UUID.randomUUID().toString();
+        String incidentId = idGenerator.nextId();
         long reportedTimestamp = System.currentTimeMillis();
 
         Incident entity = new Incident();
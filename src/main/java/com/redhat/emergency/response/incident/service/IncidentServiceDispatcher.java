@@ -0,0 +1,159 @@
+package com.redhat.emergency.response.incident.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.persistence.QueryTimeoutException;
+
+import com.redhat.emergency.response.incident.metrics.PipelineMetrics;
+import com.redhat.emergency.response.incident.metrics.PipelineMetrics.Action.Trait;
+import com.redhat.emergency.response.incident.repository.RequestDeadline;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler.Bulkhead;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler.Priority;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.vertx.ConsumeEvent;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.eventbus.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hands the <code>incident-service</code> requests from the event loop to the {@link IncidentPriorityScheduler}, on
+ * the bulkhead of their operation class. New incidents are scheduled with the priority derived from their payload,
+ * all the other requests as normal. A request rejected by a saturated bulkhead fails with {@link #REJECTED}.
+ * <p>
+ * Requests past their {@link RequestDeadline} when they leave the queue, or cancelled by the requester meanwhile
+ * through {@link #CANCEL_ADDRESS}, are dropped without being processed. Requests whose queries time out with their
+ * deadline fail with {@link #EXPIRED} as well.
+ */
+@ApplicationScoped
+public class IncidentServiceDispatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentServiceDispatcher.class);
+
+    public static final int REJECTED = 503;
+
+    public static final int EXPIRED = 504;
+
+    public static final String REQUEST_ID = "requestId";
+
+    public static final String CANCEL_ADDRESS = "incident-service-cancel";
+
+    /**
+     * Header carrying the <code>System.nanoTime()</code> at which a request was sent. The event bus is local.
+     */
+    public static final String SENT = "sent";
+
+    @Inject
+    EventBusConsumer consumer;
+
+    @Inject
+    IncidentPriorityScheduler scheduler;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    PipelineMetrics metrics;
+
+    // ids of the queued requests: a request cancelled before it is processed is removed
+    private final Map<String, Boolean> pending = new ConcurrentHashMap<>();
+
+    private Counter expiredCounter;
+
+    private Counter cancelledCounter;
+
+    private Counter timedOutCounter;
+
+    void onStart(@Observes StartupEvent e) {
+        expiredCounter = Counter.builder("incident.service.dropped").tag("reason", "expired").register(meterRegistry);
+        cancelledCounter = Counter.builder("incident.service.dropped").tag("reason", "cancelled").register(meterRegistry);
+        timedOutCounter = Counter.builder("incident.service.query.timeouts").register(meterRegistry);
+    }
+
+    @ConsumeEvent("incident-service")
+    public void dispatch(Message<JsonObject> msg) {
+        long dispatched = System.nanoTime();
+        PipelineMetrics.Action action = PipelineMetrics.Action.of(msg.headers().get("action"));
+        String requestId = msg.headers().get(REQUEST_ID);
+        String sent = msg.headers().get(SENT);
+        if (sent != null) {
+            metrics.record(PipelineMetrics.Stage.TRANSIT, action, PipelineMetrics.Outcome.SUCCESS, Long.parseLong(sent));
+        }
+        Priority priority = action == PipelineMetrics.Action.CREATE_INCIDENT ? scheduler.priorityOf(msg.body()) : Priority.NORMAL;
+        if (requestId != null) {
+            pending.put(requestId, Boolean.TRUE);
+        }
+        try {
+            scheduler.execute(bulkheadOf(action), priority, () -> process(msg, requestId, dispatched));
+        } catch (RejectedExecutionException e) {
+            if (requestId != null) {
+                pending.remove(requestId);
+            }
+            msg.fail(REJECTED, e.getMessage());
+        }
+    }
+
+    @ConsumeEvent(CANCEL_ADDRESS)
+    public void cancel(String requestId) {
+        pending.remove(requestId);
+    }
+
+    private void process(Message<JsonObject> msg, String requestId, long dispatched) {
+        String action = msg.headers().get("action");
+        metrics.record(PipelineMetrics.Stage.WAIT, PipelineMetrics.Action.of(action), PipelineMetrics.Outcome.SUCCESS, dispatched);
+        if (requestId != null && pending.remove(requestId) == null) {
+            cancelledCounter.increment();
+            log.debug("'" + action + "' request " + requestId + " cancelled before processing");
+            return;
+        }
+        long deadline = deadlineOf(msg);
+        if (deadline > 0 && System.currentTimeMillis() >= deadline) {
+            expiredCounter.increment();
+            msg.fail(EXPIRED, "Request deadline exceeded");
+            return;
+        }
+        try {
+            RequestDeadline.run(deadline, () -> consumer.consume(msg));
+        } catch (Exception e) {
+            if (isQueryTimeout(e)) {
+                timedOutCounter.increment();
+                log.debug("'" + action + "' request timed out with its deadline");
+                msg.fail(EXPIRED, "Request deadline exceeded");
+                return;
+            }
+            log.error("Error processing '" + action + "' request", e);
+            msg.fail(-1, String.valueOf(e.getMessage()));
+        }
+    }
+
+    // the transaction interceptor may wrap the exception of the query
+    private static boolean isQueryTimeout(Throwable e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof QueryTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long deadlineOf(Message<JsonObject> msg) {
+        String deadline = msg.headers().get(RequestDeadline.HEADER);
+        return deadline == null ? 0 : Long.parseLong(deadline);
+    }
+
+    static Bulkhead bulkheadOf(PipelineMetrics.Action action) {
+        if (action.is(Trait.ADMIN)) {
+            return Bulkhead.ADMIN;
+        }
+        if (action.is(Trait.WRITE)) {
+            return Bulkhead.WRITE;
+        }
+        return action.is(Trait.LIST) ? Bulkhead.LIST_READ : Bulkhead.POINT_READ;
+    }
+}
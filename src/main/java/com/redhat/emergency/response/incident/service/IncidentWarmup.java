@@ -0,0 +1,217 @@
+package com.redhat.emergency.response.incident.service;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.UserTransaction;
+
+import com.redhat.emergency.response.incident.consumer.IncidentCommandMessageSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.arc.Arc;
+import io.quarkus.arc.ManagedContext;
+import io.quarkus.runtime.StartupEvent;
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.graalvm.nativeimage.ImageInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Warms up the JIT before the pod turns ready: runs rounds of the create, update and read paths in transactions that
+ * are rolled back, and of the filtering of the incident commands and the building of the outgoing events, until the
+ * JIT compile time of a round falls under <code>incident.warmup.settle-ms</code>, or for
+ * <code>incident.warmup.max-duration</code> at most. Skipped in a native image, which is compiled ahead of time.
+ * <p>
+ * The report gives the duration of the warm-up and the mean time of each operation in the first and last rounds:
+ * the latency the first requests would have seen without warm-up, against the warmed up one.
+ */
+@ApplicationScoped
+public class IncidentWarmup {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentWarmup.class);
+
+    enum Operation {
+        CREATE, UPDATE, READ, MESSAGE
+    }
+
+    @Inject
+    IncidentService service;
+
+    @Inject
+    IncidentCommandMessageSource commandSource;
+
+    @Inject
+    UserTransaction transaction;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @ConfigProperty(name = "incident.warmup.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "incident.warmup.round-size", defaultValue = "200")
+    int roundSize;
+
+    @ConfigProperty(name = "incident.warmup.min-rounds", defaultValue = "3")
+    int minRounds;
+
+    @ConfigProperty(name = "incident.warmup.settle-ms", defaultValue = "20")
+    long settleMs;
+
+    @ConfigProperty(name = "incident.warmup.max-duration", defaultValue = "PT60S")
+    Duration maxDuration;
+
+    private volatile boolean done;
+
+    private volatile JsonObject report = new JsonObject();
+
+    void onStart(@Observes StartupEvent e) {
+        Gauge.builder("incident.warmup.duration", this, w -> w.report.getLong("durationMs", 0L))
+                .baseUnit("milliseconds").register(meterRegistry);
+        if (!enabled || ImageInfo.inImageRuntimeCode()) {
+            done = true;
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                warmUp();
+            } catch (Exception ex) {
+                log.error("Error warming up, turning ready anyway", ex);
+            } finally {
+                done = true;
+            }
+        }, "incident-warmup");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public JsonObject report() {
+        return report;
+    }
+
+    /**
+     * Runs the warm-up rounds.
+     *
+     * @return the report of the warm-up
+     */
+    JsonObject warmUp() throws Exception {
+        CompilationMXBean compilation = ManagementFactory.getCompilationMXBean();
+        boolean monitored = compilation != null && compilation.isCompilationTimeMonitoringSupported();
+        long start = System.nanoTime();
+        long deadline = start + maxDuration.toNanos();
+        Map<Operation, Long> first = null;
+        Map<Operation, Long> last = null;
+        int rounds = 0;
+        long compiled = monitored ? compilation.getTotalCompilationTime() : 0;
+        long roundCompilation = -1;
+        ManagedContext requestContext = Arc.container().requestContext();
+        boolean activated = !requestContext.isActive();
+        if (activated) {
+            requestContext.activate();
+        }
+        try {
+            while (System.nanoTime() < deadline) {
+                last = round();
+                rounds++;
+                if (first == null) {
+                    first = last;
+                }
+                if (monitored) {
+                    long total = compilation.getTotalCompilationTime();
+                    roundCompilation = total - compiled;
+                    compiled = total;
+                }
+                if (rounds >= minRounds && (!monitored || roundCompilation <= settleMs)) {
+                    break;
+                }
+            }
+        } finally {
+            if (activated) {
+                requestContext.terminate();
+            }
+        }
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        JsonObject operations = new JsonObject();
+        for (Operation operation : Operation.values()) {
+            operations.put(operation.name().toLowerCase(), new JsonObject()
+                    .put("firstRoundMicros", first == null ? 0 : first.get(operation))
+                    .put("lastRoundMicros", last == null ? 0 : last.get(operation)));
+        }
+        report = new JsonObject()
+                .put("durationMs", duration)
+                .put("rounds", rounds)
+                .put("settled", monitored && roundCompilation <= settleMs)
+                .put("lastRoundCompilationMs", roundCompilation)
+                .put("operations", operations);
+        log.info("Warm-up done: " + report.encode());
+        return report;
+    }
+
+    /**
+     * Runs a round of the operations, the writes in transactions that are rolled back.
+     *
+     * @return the mean time of each operation in the round, in microseconds
+     */
+    private Map<Operation, Long> round() throws Exception {
+        Map<Operation, Long> nanos = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            nanos.put(operation, 0L);
+        }
+        for (int i = 0; i < roundSize; i++) {
+            long start = System.nanoTime();
+            JsonObject created;
+            long createdAt;
+            transaction.begin();
+            try {
+                created = service.doCreate(incident());
+                entityManager.flush();
+                createdAt = System.nanoTime();
+                service.doUpdateIncident(new JsonObject().put("id", created.getString("id"))
+                        .put("status", "ASSIGNED").put("lat", 34.21501).put("lon", -77.89012));
+                entityManager.flush();
+            } finally {
+                transaction.rollback();
+            }
+            long updatedAt = System.nanoTime();
+            // in transactions of their own on the read datasource, where the rolled back incident is not found
+            service.incidentByIncidentId(created.getString("id"));
+            service.incidentsByVictimName(created.getString("id")).encode();
+            long readAt = System.nanoTime();
+            commandSource.warmUp(created);
+            long messageAt = System.nanoTime();
+            nanos.merge(Operation.CREATE, createdAt - start, Long::sum);
+            nanos.merge(Operation.UPDATE, updatedAt - createdAt, Long::sum);
+            nanos.merge(Operation.READ, readAt - updatedAt, Long::sum);
+            nanos.merge(Operation.MESSAGE, messageAt - readAt, Long::sum);
+        }
+        nanos.replaceAll((operation, total) -> TimeUnit.NANOSECONDS.toMicros(total / roundSize));
+        return nanos;
+    }
+
+    private static JsonObject incident() {
+        return new JsonObject()
+                .put("lat", 34.14338)
+                .put("lon", -77.86569)
+                .put("numberOfPeople", 3)
+                .put("medicalNeeded", true)
+                .put("victimName", "warm-up-" + UUID.randomUUID())
+                .put("victimPhoneNumber", "(111) 123-45678")
+                .put("status", "REPORTED");
+    }
+}
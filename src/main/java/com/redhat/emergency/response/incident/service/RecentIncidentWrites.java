@@ -0,0 +1,53 @@
+package com.redhat.emergency.response.incident.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import javax.enterprise.context.ApplicationScoped;
+
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+/**
+ * Keeps track of the incidents written in the last <code>incident.datasource.read.staleness-ms</code>, for which
+ * the read replica may still be behind the primary.
+ */
+@ApplicationScoped
+public class RecentIncidentWrites {
+
+    private static final int SWEEP_THRESHOLD = 10000;
+
+    @ConfigProperty(name = "incident.datasource.read.staleness-ms", defaultValue = "2000")
+    long staleness;
+
+    private final Map<String, Long> writes = new ConcurrentHashMap<>();
+
+    public void record(String incidentId) {
+        if (incidentId == null) {
+            return;
+        }
+        long now = System.nanoTime();
+        writes.put(incidentId, now);
+        if (writes.size() > SWEEP_THRESHOLD) {
+            writes.values().removeIf(t -> isExpired(t, now));
+        }
+    }
+
+    public boolean isRecent(String incidentId) {
+        if (incidentId == null) {
+            return false;
+        }
+        Long written = writes.get(incidentId);
+        if (written == null) {
+            return false;
+        }
+        if (isExpired(written, System.nanoTime())) {
+            writes.remove(incidentId, written);
+            return false;
+        }
+        return true;
+    }
+
+    private boolean isExpired(long written, long now) {
+        return now - written > TimeUnit.MILLISECONDS.toNanos(staleness);
+    }
+}
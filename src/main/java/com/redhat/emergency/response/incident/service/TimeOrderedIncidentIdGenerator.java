@@ -0,0 +1,42 @@
+package com.redhat.emergency.response.incident.service;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates UUIDv7 (RFC 9562) incident ids: a 48 bit unix timestamp in milliseconds, followed by a 12 bit
+ * counter and 62 random bits.
+ * <p>
+ * Ids are strictly increasing within a JVM. The timestamp and counter are advanced together with a single CAS;
+ * when more than 4096 ids are generated in the same millisecond the timestamp runs slightly ahead of the clock.
+ * The random tail comes from {@link ThreadLocalRandom}, so threads don't contend on a shared
+ * {@link java.security.SecureRandom} like {@link UUID#randomUUID()} does. The ids are unique, not unguessable.
+ */
+public class TimeOrderedIncidentIdGenerator implements IncidentIdGenerator {
+
+    private static final int COUNTER_BITS = 12;
+
+    private final AtomicLong lastTimestampAndCounter = new AtomicLong();
+
+    @Override
+    public String nextId() {
+        return nextUuid().toString();
+    }
+
+    UUID nextUuid() {
+        long candidate = System.currentTimeMillis() << COUNTER_BITS;
+        long next;
+        long last;
+        do {
+            last = lastTimestampAndCounter.get();
+            next = Math.max(candidate, last + 1);
+        } while (!lastTimestampAndCounter.compareAndSet(last, next));
+
+        long millis = next >>> COUNTER_BITS;
+        long counter = next & ((1L << COUNTER_BITS) - 1);
+        long msb = (millis << 16) | 0x7000L | counter;
+        long lsb = (ThreadLocalRandom.current().nextLong() & 0x3FFFFFFFFFFFFFFFL) | 0x8000000000000000L;
+        return new UUID(msb, lsb);
+    }
+}
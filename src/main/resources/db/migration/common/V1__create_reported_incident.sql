@@ -0,0 +1,18 @@
+-- The table may already exist in databases shared with other services: every statement is idempotent.
+
+CREATE SEQUENCE IF NOT EXISTS reported_incident_seq START WITH 1 INCREMENT BY 10;
+
+CREATE TABLE IF NOT EXISTS reported_incident (
+    id               BIGINT       NOT NULL,
+    incident_id      VARCHAR(255),
+    latitude         VARCHAR(255),
+    longitude        VARCHAR(255),
+    number_of_people INTEGER      NOT NULL,
+    medical_needed   BOOLEAN      NOT NULL,
+    victim_name      VARCHAR(255),
+    victim_phone     VARCHAR(255),
+    reported_time    TIMESTAMP,
+    incident_status  VARCHAR(255),
+    version          BIGINT       NOT NULL,
+    PRIMARY KEY (id)
+);
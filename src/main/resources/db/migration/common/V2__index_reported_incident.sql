@@ -0,0 +1,8 @@
+-- Incident.byIncidentId
+CREATE UNIQUE INDEX IF NOT EXISTS reported_incident_incident_id_idx ON reported_incident (incident_id);
+
+-- Incident.byStatus
+CREATE INDEX IF NOT EXISTS reported_incident_status_idx ON reported_incident (incident_status);
+
+-- ordering and time range scans
+CREATE INDEX IF NOT EXISTS reported_incident_reported_time_idx ON reported_incident (reported_time);
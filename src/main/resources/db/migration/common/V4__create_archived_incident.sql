@@ -0,0 +1,24 @@
+-- Cold storage for incidents in a terminal status, filled by the IncidentArchiver.
+
+CREATE TABLE IF NOT EXISTS archived_incident (
+    id               BIGINT       NOT NULL,
+    incident_id      VARCHAR(255),
+    latitude         VARCHAR(255),
+    longitude        VARCHAR(255),
+    number_of_people INTEGER      NOT NULL,
+    medical_needed   BOOLEAN      NOT NULL,
+    victim_name      VARCHAR(255),
+    victim_phone     VARCHAR(255),
+    reported_time    TIMESTAMP,
+    incident_status  VARCHAR(255),
+    version          BIGINT       NOT NULL,
+    archived_time    TIMESTAMP    NOT NULL,
+    PRIMARY KEY (id)
+);
+
+CREATE UNIQUE INDEX IF NOT EXISTS archived_incident_incident_id_idx ON archived_incident (incident_id);
+
+CREATE INDEX IF NOT EXISTS archived_incident_status_idx ON archived_incident (incident_status);
+
+-- selects the next chunk of archivable incidents from the live table
+CREATE INDEX IF NOT EXISTS reported_incident_status_reported_time_idx ON reported_incident (incident_status, reported_time);
@@ -0,0 +1,3 @@
+-- Incident.findByName: LOWER(victim_name) LIKE :pattern
+-- text_pattern_ops lets prefix patterns ('john%') use the index regardless of the database collation.
+CREATE INDEX IF NOT EXISTS reported_incident_victim_name_idx ON reported_incident (LOWER(victim_name) text_pattern_ops);
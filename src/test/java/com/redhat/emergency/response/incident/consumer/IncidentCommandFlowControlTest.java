@@ -0,0 +1,96 @@
+package com.redhat.emergency.response.incident.consumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class IncidentCommandFlowControlTest {
+
+    @Inject
+    IncidentCommandFlowControl flowControl;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Test
+    void testPauseAboveHighWatermark() {
+
+        List<CompletableFuture<Void>> admissions = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            admissions.add(flowControl.admit(Message.of("command")).toCompletableFuture());
+        }
+
+        assertThat(admissions.stream().filter(CompletableFuture::isDone).count(), equalTo(4L));
+        assertThat(admissions.get(4).isDone(), equalTo(false));
+        assertThat(flowControl.isPaused(), equalTo(true));
+        assertThat(flowControl.inFlight(), equalTo(4));
+
+        flowControl.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(flowControl.isPaused(), equalTo(true));
+        assertThat(admissions.get(4).isDone(), equalTo(false));
+
+        flowControl.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(flowControl.isPaused(), equalTo(false));
+        assertThat(admissions.get(4).isDone(), equalTo(true));
+        assertThat(flowControl.inFlight(), equalTo(3));
+
+        for (int i = 0; i < 3; i++) {
+            flowControl.release(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        assertThat(flowControl.inFlight(), equalTo(0));
+    }
+
+    @Test
+    void testPauseOnDatabaseLatency() {
+
+        for (int i = 0; i < 5; i++) {
+            flowControl.admit(Message.of("command"));
+            flowControl.release(TimeUnit.SECONDS.toNanos(2));
+        }
+
+        CompletableFuture<Void> first = flowControl.admit(Message.of("command")).toCompletableFuture();
+        CompletableFuture<Void> second = flowControl.admit(Message.of("command")).toCompletableFuture();
+
+        assertThat(first.isDone(), equalTo(true));
+        assertThat(second.isDone(), equalTo(false));
+        assertThat(flowControl.isPaused(), equalTo(true));
+
+        flowControl.release(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(second.isDone(), equalTo(true));
+        assertThat(flowControl.isPaused(), equalTo(false));
+
+        for (int i = 0; i < 20; i++) {
+            flowControl.release(0);
+            flowControl.admit(Message.of("command"));
+        }
+        flowControl.release(0);
+        assertThat(flowControl.inFlight(), equalTo(0));
+    }
+
+    @Test
+    void testReleaseWithoutLatencySample() throws Exception {
+
+        flowControl.admit(Message.of("command")).toCompletableFuture().get(1, TimeUnit.SECONDS);
+        flowControl.release(TimeUnit.MILLISECONDS.toNanos(50));
+        double latency = meterRegistry.get("incident.command.flow.latency").gauge().value();
+
+        for (int i = 0; i < 10; i++) {
+            flowControl.admit(Message.of("command")).toCompletableFuture().get(1, TimeUnit.SECONDS);
+            flowControl.release();
+        }
+
+        assertThat(meterRegistry.get("incident.command.flow.latency").gauge().value(), equalTo(latency));
+        assertThat(flowControl.inFlight(), equalTo(0));
+    }
+}
@@ -3,11 +3,15 @@ package com.redhat.emergency.response.incident.consumer;
 import static net.javacrumbs.jsonunit.JsonMatchers.jsonPartEquals;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.startsWith;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
@@ -15,18 +19,25 @@ import static org.mockito.MockitoAnnotations.openMocks;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 import javax.enterprise.inject.Any;
 import javax.inject.Inject;
 
 import com.redhat.emergency.response.incident.service.IncidentService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
 import io.smallrye.mutiny.Uni;
 import io.smallrye.mutiny.vertx.AsyncResultUni;
+import io.smallrye.reactive.messaging.ce.OutgoingCloudEventMetadata;
 import io.smallrye.reactive.messaging.ce.impl.DefaultOutgoingCloudEventMetadata;
 import io.smallrye.reactive.messaging.connectors.InMemoryConnector;
 import io.smallrye.reactive.messaging.connectors.InMemorySink;
+import io.smallrye.reactive.messaging.connectors.InMemorySource;
 import io.smallrye.reactive.messaging.kafka.IncomingKafkaRecord;
 import io.smallrye.reactive.messaging.kafka.OutgoingKafkaRecordMetadata;
 import io.smallrye.reactive.messaging.kafka.commit.KafkaCommitHandler;
@@ -62,6 +73,12 @@ public class IncidentCommandMessageSourceTest {
     @Inject @Any
     InMemoryConnector connector;
 
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Inject
+    IncidentCommandFlowControl flowControl;
+
     private boolean messageAck = false;
 
     @BeforeEach
@@ -69,6 +86,8 @@ public class IncidentCommandMessageSourceTest {
         openMocks(this);
         messageAck = false;
         connector.sink("incident-event").clear();
+        connector.sink("incident-command-retry").clear();
+        connector.sink("incident-command-dlq").clear();
     }
 
     @Test
@@ -94,9 +113,10 @@ public class IncidentCommandMessageSourceTest {
 
         when(incidentService.updateIncident(any(JsonObject.class))).thenReturn(updated);
         InMemorySink<String> results = connector.sink("incident-event");
+        long lag = count("incident.command.lag");
 
         CompletionStage<CompletionStage<Void>> c = source.processMessage(toRecord("incident1", json, true, "application/json","UpdateIncidentCommand"));
-        c.toCompletableFuture().get();
+        c.toCompletableFuture().get().toCompletableFuture().get();
 
         verify(incidentService).updateIncident(jsonObjectCaptor.capture());
         JsonObject toUpdate = jsonObjectCaptor.getValue();
@@ -136,6 +156,65 @@ public class IncidentCommandMessageSourceTest {
         assertThat(outgoingCloudEventMetadata.getSpecVersion(), equalTo("1.0"));
         assertThat(outgoingCloudEventMetadata.getType(), equalTo("IncidentUpdatedEvent"));
         assertThat(outgoingCloudEventMetadata.getTimeStamp().isPresent(), is(true));
+        assertThat(String.valueOf(outgoingCloudEventMetadata.getExtension(IncidentCommandMessageSource.LATENCY_TRACE).orElse(null)),
+                startsWith("record="));
+
+        assertThat(count("incident.command.lag"), equalTo(lag + 1));
+        long endToEnd = count("incident.command.e2e");
+        record.ack().toCompletableFuture().get();
+        assertThat(count("incident.command.e2e"), equalTo(endToEnd + 1));
+        assertThat(meterRegistry.get("incident.pipeline").tag("stage", "publish").tag("action", "IncidentUpdatedEvent")
+                .tag("outcome", "success").timer().count(), greaterThan(0L));
+    }
+
+    @Test
+    void testProcessUpdateIncidentCommandFailure() throws ExecutionException, InterruptedException {
+
+        String json = "{" +
+                "\"incident\" : {" +
+                "\"id\" : \"incident1\"," +
+                "\"status\" : \"ASSIGNED\"" +
+                "} " +
+                "}";
+
+        when(incidentService.updateIncident(any(JsonObject.class))).thenThrow(new RuntimeException("Connection timed out"));
+        InMemorySink<String> results = connector.sink("incident-event");
+        InMemorySink<String> retries = connector.sink("incident-command-retry");
+
+        CompletionStage<CompletionStage<Void>> c = source.processMessage(toRecord("incident1", json, true, "application/json","UpdateIncidentCommand"));
+        c.toCompletableFuture().get().toCompletableFuture().get();
+
+        verify(incidentService).updateIncident(any(JsonObject.class));
+        assertThat(results.received().size(), equalTo(0));
+        assertThat(connector.sink("incident-command-dlq").received().size(), equalTo(0));
+        assertThat(retries.received().size(), equalTo(1));
+        JsonObject envelope = new JsonObject(retries.received().get(0).getPayload());
+        assertThat(envelope.getInteger("attempt"), equalTo(1));
+        assertThat(envelope.getLong("due"), notNullValue());
+        assertThat(envelope.getJsonObject("command"), equalTo(new JsonObject(json)));
+        assertThat(messageAck, equalTo(true));
+    }
+
+    @Test
+    void testProcessUpdateIncidentCommandNotFound() throws ExecutionException, InterruptedException {
+
+        String json = "{" +
+                "\"incident\" : {" +
+                "\"id\" : \"incident1\"," +
+                "\"status\" : \"ASSIGNED\"" +
+                "} " +
+                "}";
+
+        when(incidentService.updateIncident(any(JsonObject.class))).thenReturn(null);
+        InMemorySink<String> results = connector.sink("incident-event");
+
+        CompletionStage<CompletionStage<Void>> c = source.processMessage(toRecord("incident1", json, true, "application/json","UpdateIncidentCommand"));
+        c.toCompletableFuture().get().toCompletableFuture().get();
+
+        verify(incidentService).updateIncident(any(JsonObject.class));
+        assertThat(results.received().size(), equalTo(0));
+        assertThat(connector.sink("incident-command-retry").received().size(), equalTo(0));
+        assertThat(messageAck, equalTo(true));
     }
 
     @Test
@@ -146,7 +225,7 @@ public class IncidentCommandMessageSourceTest {
         InMemorySink<String> results = connector.sink("incident-event");
 
         CompletionStage<CompletionStage<Void>> c =  source.processMessage(toRecord("incident1", json, true, "application/json","WrongType"));
-        c.toCompletableFuture().get();
+        c.toCompletableFuture().get().toCompletableFuture().get();
 
         verify(incidentService, never()).updateIncident(any(JsonObject.class));
         assertThat(messageAck, equalTo(true));
@@ -161,7 +240,7 @@ public class IncidentCommandMessageSourceTest {
         InMemorySink<String> results = connector.sink("incident-event");
 
         CompletionStage<CompletionStage<Void>> c =  source.processMessage(toRecord("incident1", json, true, "application/avro", "UpdateIncidentCommand"));
-        c.toCompletableFuture().get();
+        c.toCompletableFuture().get().toCompletableFuture().get();
 
         verify(incidentService, never()).updateIncident(any(JsonObject.class));
         assertThat(messageAck, equalTo(true));
@@ -176,13 +255,24 @@ public class IncidentCommandMessageSourceTest {
         InMemorySink<String> results = connector.sink("incident-event");
 
         CompletionStage<CompletionStage<Void>> c =  source.processMessage(toRecord("incident1", json, true, null, "UpdateIncidentCommand"));
-        c.toCompletableFuture().get();
+        c.toCompletableFuture().get().toCompletableFuture().get();
 
         verify(incidentService, never()).updateIncident(any(JsonObject.class));
         assertThat(messageAck, equalTo(true));
         assertThat(results.received().size(), equalTo(0));
     }
 
+    @Test
+    void testUpdatedEventsHaveDistinctIds() {
+        JsonObject incident = new JsonObject().put("id", "incident1").put("status", "ASSIGNED");
+
+        String first = cloudEventId(source.toMessage(new IncidentCommandMessageSource.Updated(incident, null)));
+        String second = cloudEventId(source.toMessage(new IncidentCommandMessageSource.Updated(incident, null)));
+
+        assertThat(first, notNullValue());
+        assertThat(second, not(equalTo(first)));
+    }
+
     @Test
     public void testProcessMessageNotACloudEvent() throws ExecutionException, InterruptedException {
 
@@ -191,13 +281,52 @@ public class IncidentCommandMessageSourceTest {
         InMemorySink<String> results = connector.sink("incident-event");
 
         CompletionStage<CompletionStage<Void>> c =  source.processMessage(toRecord("incident1", json, false, null,"UpdateIncidentCommand"));
-        c.toCompletableFuture().get();
+        c.toCompletableFuture().get().toCompletableFuture().get();
 
         verify(incidentService, never()).updateIncident(any(JsonObject.class));
         assertThat(messageAck, equalTo(true));
         assertThat(results.received().size(), equalTo(0));
     }
 
+    @Test
+    void testFlowControlPausesTheChannel() throws Exception {
+
+        CountDownLatch database = new CountDownLatch(1);
+        when(incidentService.updateIncident(any(JsonObject.class))).thenAnswer(i -> {
+            database.await(10, TimeUnit.SECONDS);
+            return null;
+        });
+
+        InMemorySource<IncomingKafkaRecord<String, String>> commands = connector.source("incident-command");
+        for (int i = 0; i < 6; i++) {
+            String json = new JsonObject().put("incident", new JsonObject().put("id", "flow" + i).put("status", "ASSIGNED")).encode();
+            commands.send(toRecord("flow" + i, json, true, "application/json", "UpdateIncidentCommand"));
+        }
+
+        // a single write thread is blocked: the records are admitted up to the high watermark of 4, then the channel pauses
+        await(() -> flowControl.isPaused());
+        assertThat(flowControl.inFlight(), equalTo(4));
+        verify(incidentService, times(1)).updateIncident(any(JsonObject.class));
+
+        database.countDown();
+        await(() -> flowControl.inFlight() == 0);
+        assertThat(flowControl.isPaused(), equalTo(false));
+        verify(incidentService, times(6)).updateIncident(any(JsonObject.class));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long timeout = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean(), equalTo(true));
+    }
+
+    private long count(String timer) {
+        Timer t = meterRegistry.find(timer).timer();
+        return t == null ? 0 : t.count();
+    }
+
     private IncomingKafkaRecord<String, String> toRecord(String key, String payload, boolean cloudEvent, String dataContentType, String type) {
         MockKafkaConsumer<String, String> mc = new MockKafkaConsumer<>();
         ConsumerRecord<String, String> cr;
@@ -213,7 +342,7 @@ public class IncidentCommandMessageSourceTest {
                 headers.add("content-type", dataContentType.getBytes());
             }
 
-            cr = new ConsumerRecord<>("topic", 1, 100, ConsumerRecord.NO_TIMESTAMP, TimestampType.NO_TIMESTAMP_TYPE,
+            cr = new ConsumerRecord<>("topic", 1, 100, System.currentTimeMillis(), TimestampType.CREATE_TIME,
                     (long) ConsumerRecord.NULL_CHECKSUM, ConsumerRecord.NULL_SIZE, ConsumerRecord.NULL_SIZE, key, payload, headers);
         } else {
             cr = new ConsumerRecord<>("topic", 1, 100, key, payload);
@@ -248,4 +377,7 @@ public class IncidentCommandMessageSourceTest {
         }
     }
 
+    private static String cloudEventId(org.eclipse.microprofile.reactive.messaging.Message<String> message) {
+        return message.getMetadata(OutgoingCloudEventMetadata.class).map(OutgoingCloudEventMetadata::getId).orElse(null);
+    }
 }
@@ -0,0 +1,166 @@
+package com.redhat.emergency.response.incident.consumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.MockitoAnnotations.openMocks;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+
+import com.redhat.emergency.response.incident.service.IncidentService;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectMock;
+import io.smallrye.reactive.messaging.connectors.InMemoryConnector;
+import io.smallrye.reactive.messaging.connectors.InMemorySink;
+import io.smallrye.reactive.messaging.kafka.OutgoingKafkaRecordMetadata;
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.reactive.messaging.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class IncidentCommandRetryMessageSourceTest {
+
+    @InjectMock
+    IncidentService incidentService;
+
+    @Inject
+    IncidentCommandRetryMessageSource retrySource;
+
+    @Inject
+    IncidentCommandFlowControl flowControl;
+
+    @Inject @Any
+    InMemoryConnector connector;
+
+    private CompletableFuture<Void> messageAck;
+
+    @BeforeEach
+    void init() {
+        openMocks(this);
+        messageAck = new CompletableFuture<>();
+        connector.sink("incident-event").clear();
+        connector.sink("incident-command-retry").clear();
+        connector.sink("incident-command-dlq").clear();
+    }
+
+    @Test
+    void testRetryRecovered() throws Exception {
+
+        JsonObject updated = new JsonObject()
+                .put("id", "incident1")
+                .put("lat", 30.12345)
+                .put("lon", -70.98765)
+                .put("numberOfPeople", 3)
+                .put("medicalNeeded", true)
+                .put("victimName", "John Doe")
+                .put("victimPhoneNumber", "(111) 123-45678")
+                .put("timestamp", Instant.now().toEpochMilli())
+                .put("status", "ASSIGNED");
+
+        when(incidentService.updateIncident(any(JsonObject.class))).thenReturn(updated);
+        InMemorySink<String> results = connector.sink("incident-event");
+
+        retrySource.processRetry(toMessage(envelope(1, System.currentTimeMillis())));
+        messageAck.get(5, TimeUnit.SECONDS);
+
+        verify(incidentService).updateIncident(any(JsonObject.class));
+        assertThat(results.received().size(), equalTo(1));
+        assertThat(connector.sink("incident-command-retry").received().size(), equalTo(0));
+        assertThat(connector.sink("incident-command-dlq").received().size(), equalTo(0));
+    }
+
+    @Test
+    void testRetryWaitsUntilDue() throws Exception {
+
+        when(incidentService.updateIncident(any(JsonObject.class))).thenReturn(new JsonObject().put("id", "incident1"));
+
+        long due = System.currentTimeMillis() + 500;
+        retrySource.processRetry(toMessage(envelope(1, due)));
+        messageAck.get(5, TimeUnit.SECONDS);
+
+        assertThat(System.currentTimeMillis(), greaterThanOrEqualTo(due));
+        verify(incidentService).updateIncident(any(JsonObject.class));
+    }
+
+    @Test
+    void testDelayedRetryIsNotInFlight() throws Exception {
+
+        when(incidentService.updateIncident(any(JsonObject.class))).thenReturn(new JsonObject().put("id", "incident1"));
+
+        retrySource.processRetry(toMessage(envelope(1, System.currentTimeMillis() + 500)));
+
+        assertThat(retrySource.delayed(), equalTo(1));
+        assertThat(flowControl.inFlight(), equalTo(0));
+        messageAck.get(5, TimeUnit.SECONDS);
+        assertThat(retrySource.delayed(), equalTo(0));
+    }
+
+    @Test
+    void testRetryFailedEscalatesToNextTier() throws Exception {
+
+        when(incidentService.updateIncident(any(JsonObject.class))).thenThrow(new RuntimeException("Connection timed out"));
+        InMemorySink<String> retries = connector.sink("incident-command-retry");
+
+        retrySource.processRetry(toMessage(envelope(1, System.currentTimeMillis())));
+        messageAck.get(5, TimeUnit.SECONDS);
+
+        assertThat(retries.received().size(), equalTo(1));
+        Message<String> record = retries.received().get(0);
+        JsonObject envelope = new JsonObject(record.getPayload());
+        assertThat(envelope.getInteger("attempt"), equalTo(2));
+        assertThat(envelope.getJsonObject("command").getJsonObject("incident").getString("id"), equalTo("incident1"));
+        OutgoingKafkaRecordMetadata<?> metadata = record.getMetadata(OutgoingKafkaRecordMetadata.class).orElseThrow();
+        assertThat(metadata.getTopic(), equalTo("topic-incident-command-retry-2"));
+        assertThat(metadata.getKey(), equalTo("incident1"));
+        assertThat(connector.sink("incident-command-dlq").received().size(), equalTo(0));
+    }
+
+    @Test
+    void testRetryExhaustedIsDeadLettered() throws Exception {
+
+        when(incidentService.updateIncident(any(JsonObject.class))).thenThrow(new RuntimeException("Connection timed out"));
+        InMemorySink<String> deadLetters = connector.sink("incident-command-dlq");
+
+        retrySource.processRetry(toMessage(envelope(3, System.currentTimeMillis())));
+        messageAck.get(5, TimeUnit.SECONDS);
+
+        assertThat(connector.sink("incident-command-retry").received().size(), equalTo(0));
+        assertThat(deadLetters.received().size(), equalTo(1));
+        JsonObject envelope = new JsonObject(deadLetters.received().get(0).getPayload());
+        assertThat(envelope.getInteger("attempt"), equalTo(3));
+        assertThat(envelope.getString("error"), equalTo("java.lang.RuntimeException: Connection timed out"));
+    }
+
+    @Test
+    void testPoisonCommandIsDeadLettered() throws Exception {
+
+        when(incidentService.updateIncident(any(JsonObject.class))).thenThrow(new ClassCastException());
+        InMemorySink<String> deadLetters = connector.sink("incident-command-dlq");
+
+        retrySource.processRetry(toMessage(envelope(1, System.currentTimeMillis())));
+        messageAck.get(5, TimeUnit.SECONDS);
+
+        assertThat(connector.sink("incident-command-retry").received().size(), equalTo(0));
+        assertThat(deadLetters.received().size(), equalTo(1));
+    }
+
+    private JsonObject envelope(int attempt, long due) {
+        JsonObject command = new JsonObject().put("incident", new JsonObject().put("id", "incident1").put("status", "ASSIGNED"));
+        return new JsonObject().put("attempt", attempt).put("due", due).put("command", command);
+    }
+
+    private Message<String> toMessage(JsonObject envelope) {
+        return Message.of(envelope.encode(), () -> {
+            messageAck.complete(null);
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+}
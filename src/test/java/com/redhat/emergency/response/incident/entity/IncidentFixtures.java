@@ -0,0 +1,30 @@
+package com.redhat.emergency.response.incident.entity;
+
+import java.time.Instant;
+
+/**
+ * Incidents for the tests, reported now, that only differ by their id and status.
+ */
+public final class IncidentFixtures {
+
+    private IncidentFixtures() {
+    }
+
+    public static Incident incident(String incidentId) {
+        return incident(incidentId, "REPORTED");
+    }
+
+    public static Incident incident(String incidentId, String status) {
+        Incident incident = new Incident();
+        incident.setIncidentId(incidentId);
+        incident.setLatitude("30.12345");
+        incident.setLongitude("-70.98765");
+        incident.setNumberOfPeople(3);
+        incident.setMedicalNeeded(true);
+        incident.setVictimName("John Doe");
+        incident.setVictimPhoneNumber("(111) 456-78990");
+        incident.setReportedTime(Instant.now());
+        incident.setStatus(status);
+        return incident;
+    }
+}
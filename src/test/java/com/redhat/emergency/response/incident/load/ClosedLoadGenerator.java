@@ -0,0 +1,145 @@
+package com.redhat.emergency.response.incident.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Closed-model load generator: a fixed number of clients each start their next operation as soon as the previous one
+ * has completed. The throughput is then what the system under test sustains at that concurrency, and drops as soon
+ * as its operations take longer, where the throughput of an {@link OpenLoadGenerator} is the offered rate for as long
+ * as the system keeps up with it. Latency is measured from the start of each operation.
+ * <p>
+ * Operation picks come from a seeded {@link Random} shared by the clients: the mix is reproducible, the order in
+ * which the clients draw from it is not.
+ */
+public class ClosedLoadGenerator {
+
+    private final Random random;
+
+    private final List<Stats> operations = new ArrayList<>();
+
+    private int totalWeight;
+
+    public ClosedLoadGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public ClosedLoadGenerator operation(String name, int weight, OpenLoadGenerator.Operation operation) {
+        operations.add(new Stats(name, weight, operation));
+        totalWeight += weight;
+        return this;
+    }
+
+    /**
+     * Generates the load with the given number of clients for the given duration, then waits for the operations in
+     * flight to complete.
+     */
+    public void run(int clients, Duration duration) throws InterruptedException {
+        long end = System.nanoTime() + duration.toNanos();
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        try {
+            for (int i = 0; i < clients; i++) {
+                executor.execute(() -> {
+                    while (System.nanoTime() < end && !Thread.currentThread().isInterrupted()) {
+                        call(pick());
+                    }
+                });
+            }
+        } finally {
+            executor.shutdown();
+        }
+        if (!executor.awaitTermination(duration.getSeconds() + 30, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void call(Stats stats) {
+        long start = System.nanoTime();
+        boolean success;
+        try {
+            success = Boolean.TRUE.equals(stats.operation.start(random).toCompletableFuture().get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (Exception e) {
+            success = false;
+        }
+        stats.histogram.recordValue(System.nanoTime() - start);
+        if (!success) {
+            stats.errors.increment();
+        }
+    }
+
+    private Stats pick() {
+        int n = random.nextInt(totalWeight);
+        for (Stats stats : operations) {
+            n -= stats.weight;
+            if (n < 0) {
+                return stats;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Clears the statistics, at the end of a warm-up.
+     */
+    public void reset() {
+        for (Stats stats : operations) {
+            stats.histogram.reset();
+            stats.errors.reset();
+        }
+    }
+
+    /**
+     * Throughput, errors and latency percentiles of every operation, over a run of the given duration.
+     */
+    public List<OpenLoadGenerator.Result> results(Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        List<OpenLoadGenerator.Result> results = new ArrayList<>();
+        for (Stats stats : operations) {
+            Histogram h = stats.histogram;
+            long errors = stats.errors.sum();
+            results.add(new OpenLoadGenerator.Result(stats.name, h.getTotalCount(), errors,
+                    (h.getTotalCount() - errors) / seconds, h.getValueAtPercentile(50) / 1e6,
+                    h.getValueAtPercentile(99) / 1e6, h.getValueAtPercentile(99.9) / 1e6, h.getMaxValue() / 1e6));
+        }
+        return results;
+    }
+
+    /**
+     * Successful operations per second over a run of the given duration, all operations together.
+     */
+    public double throughput(Duration duration) {
+        return results(duration).stream().mapToDouble(r -> r.throughput).sum();
+    }
+
+    private static class Stats {
+
+        private final String name;
+
+        private final int weight;
+
+        private final OpenLoadGenerator.Operation operation;
+
+        // auto-resizing, in nanoseconds with 3 significant digits
+        private final Histogram histogram = new ConcurrentHistogram(3);
+
+        private final LongAdder errors = new LongAdder();
+
+        private Stats(String name, int weight, OpenLoadGenerator.Operation operation) {
+            this.name = name;
+            this.weight = weight;
+            this.operation = operation;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.redhat.emergency.response.incident.load;
+
+import java.net.URL;
+import java.time.Duration;
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+
+import com.redhat.emergency.response.incident.consumer.IncidentCommandMessageSource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import io.smallrye.reactive.messaging.connectors.InMemoryConnector;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Mixed open-model load through the REST resource and the <code>incident-command</code> consumer, entirely in
+ * process: H2 and the in-memory connector, with the production sizing of {@link LoadProfile}. Reports throughput and
+ * latency percentiles per endpoint and per message type. Run with
+ * <code>mvn test -Pbenchmark -Dtest=IncidentLoadBenchmarkTest</code>, tuned with the <code>load.*</code> system
+ * properties: <code>seed</code>, <code>warmup-s</code>, <code>duration-s</code>, <code>rest.rate</code> and
+ * <code>command.rate</code> (per second).
+ */
+@QuarkusTest
+@TestProfile(LoadProfile.class)
+@Tag("benchmark")
+public class IncidentLoadBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentLoadBenchmarkTest.class);
+
+    private static final long SEED = Long.getLong("load.seed", 42);
+
+    private static final Duration WARMUP = Duration.ofSeconds(Long.getLong("load.warmup-s", 10));
+
+    private static final Duration DURATION = Duration.ofSeconds(Long.getLong("load.duration-s", 30));
+
+    private static final double REST_RATE = Double.parseDouble(System.getProperty("load.rest.rate", "100"));
+
+    private static final double COMMAND_RATE = Double.parseDouble(System.getProperty("load.command.rate", "50"));
+
+    private static final int INCIDENTS = 500;
+
+    @TestHTTPResource("/incidents")
+    URL incidents;
+
+    @Inject
+    IncidentCommandMessageSource source;
+
+    @Inject @Any
+    InMemoryConnector connector;
+
+    @Test
+    void benchmarkMixedLoad() throws Exception {
+        try (IncidentWorkload workload = new IncidentWorkload(incidents, source, connector)) {
+            workload.seed(INCIDENTS, SEED);
+            OpenLoadGenerator generator = new OpenLoadGenerator(SEED);
+            workload.addTo(generator, REST_RATE, COMMAND_RATE);
+
+            generator.run(WARMUP);
+            generator.reset();
+            generator.run(DURATION);
+            log.info(String.format("%.0f REST requests/s, %.0f commands/s, seed %d:%n%s", REST_RATE, COMMAND_RATE, SEED,
+                    generator.report(DURATION)));
+        }
+    }
+}
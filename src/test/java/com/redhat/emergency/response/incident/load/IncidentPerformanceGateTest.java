@@ -0,0 +1,229 @@
+package com.redhat.emergency.response.incident.load;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+
+import com.redhat.emergency.response.incident.consumer.IncidentCommandMessageSource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.TestProfile;
+import io.smallrye.reactive.messaging.connectors.InMemoryConnector;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs a fixed {@link IncidentWorkload} scenario and fails when it regresses against the committed baseline beyond the
+ * thresholds. The scenario has two parts:
+ * <ul>
+ * <li>an open model at a fixed rate, well below saturation, gated per operation on the p50 and p99 latencies
+ * (relative increase, above an absolute slack for the noise of sub-millisecond values; the p99 only for operations
+ * with enough samples for it not to be their maximum) and the error rate. Its throughput is the offered rate, set by
+ * the seed, and is reported only;</li>
+ * <li>a closed model of the REST mix, with a fixed number of clients sending back to back, gated on its total
+ * throughput: the capacity of the service at that concurrency, which drops as soon as the requests take longer.</li>
+ * </ul>
+ * The results are written as JSON for trend tracking.
+ * <p>
+ * Run with <code>mvn test -Pperf</code>. The <code>perf.*</code> system properties set the thresholds
+ * (<code>max-p50-increase</code>, <code>max-p99-increase</code>, <code>min-p99-samples</code>,
+ * <code>latency-slack-ms</code>, <code>max-throughput-decrease</code>, <code>max-error-rate-increase</code>), the
+ * clients of the closed model (<code>clients</code>) and the files (<code>baseline</code>, <code>result</code>).
+ * <code>-Dperf.update-baseline=true</code> records the results as the new baseline.
+ * <p>
+ * The numbers only compare on the same hardware. The committed baseline was recorded on the single CPU build
+ * container; the host of a baseline is recorded with it, and the gate warns when it runs on another one. Record a
+ * baseline on the machine type the gate runs on, and point <code>perf.baseline</code> to it.
+ */
+@QuarkusTest
+@TestProfile(LoadProfile.class)
+@Tag("perf")
+public class IncidentPerformanceGateTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentPerformanceGateTest.class);
+
+    private static final long SEED = 42;
+
+    private static final Duration WARMUP = Duration.ofSeconds(10);
+
+    private static final Duration DURATION = Duration.ofSeconds(30);
+
+    private static final double REST_RATE = 50;
+
+    private static final double COMMAND_RATE = 25;
+
+    private static final int INCIDENTS = 500;
+
+    private static final Duration CAPACITY_WARMUP = Duration.ofSeconds(5);
+
+    private static final Duration CAPACITY_DURATION = Duration.ofSeconds(20);
+
+    private static final int CLIENTS = Integer.getInteger("perf.clients", 16);
+
+    private static final Path BASELINE = Paths.get(System.getProperty("perf.baseline", "src/test/perf/baseline.json"));
+
+    private static final Path RESULT = Paths.get(System.getProperty("perf.result", "target/perf-result.json"));
+
+    private static final double MAX_P50_INCREASE = Double.parseDouble(System.getProperty("perf.max-p50-increase", "0.5"));
+
+    private static final double MAX_P99_INCREASE = Double.parseDouble(System.getProperty("perf.max-p99-increase", "1.0"));
+
+    private static final long MIN_P99_SAMPLES = Long.getLong("perf.min-p99-samples", 200);
+
+    private static final double LATENCY_SLACK_MS = Double.parseDouble(System.getProperty("perf.latency-slack-ms", "5"));
+
+    private static final double MAX_THROUGHPUT_DECREASE = Double.parseDouble(System.getProperty("perf.max-throughput-decrease", "0.1"));
+
+    private static final double MAX_ERROR_RATE_INCREASE = Double.parseDouble(System.getProperty("perf.max-error-rate-increase", "0.01"));
+
+    @TestHTTPResource("/incidents")
+    URL incidents;
+
+    @Inject
+    IncidentCommandMessageSource source;
+
+    @Inject @Any
+    InMemoryConnector connector;
+
+    @Test
+    void testNoRegression() throws Exception {
+        List<OpenLoadGenerator.Result> results;
+        double capacity;
+        try (IncidentWorkload workload = new IncidentWorkload(incidents, source, connector)) {
+            workload.seed(INCIDENTS, SEED);
+            OpenLoadGenerator generator = new OpenLoadGenerator(SEED);
+            workload.addTo(generator, REST_RATE, COMMAND_RATE);
+            generator.run(WARMUP);
+            generator.reset();
+            generator.run(DURATION);
+            log.info("Performance scenario:\n" + generator.report(DURATION));
+            results = generator.results(DURATION);
+
+            ClosedLoadGenerator closed = new ClosedLoadGenerator(SEED);
+            workload.addTo(closed);
+            closed.run(CLIENTS, CAPACITY_WARMUP);
+            closed.reset();
+            closed.run(CLIENTS, CAPACITY_DURATION);
+            capacity = closed.throughput(CAPACITY_DURATION);
+            log.info(String.format("Capacity with %d clients: %.1f requests/s", CLIENTS, capacity));
+        }
+
+        JsonObject operations = new JsonObject();
+        results.forEach(r -> operations.put(r.name, new JsonObject()
+                .put("count", r.count)
+                .put("errors", r.errors)
+                .put("throughput", r.throughput)
+                .put("p50", r.p50)
+                .put("p99", r.p99)
+                .put("p999", r.p999)
+                .put("max", r.max)));
+        JsonObject host = host();
+        JsonObject baseline = Files.exists(BASELINE) ? new JsonObject(Files.readString(BASELINE)) : null;
+        List<String> regressions = new ArrayList<>();
+        if (baseline != null) {
+            if (!host.equals(baseline.getJsonObject("host"))) {
+                log.warn("Performance baseline recorded on " + baseline.getJsonObject("host") + ", running on " + host
+                        + ": the comparison is not meaningful");
+            }
+            regressions.addAll(compare(operations, baseline.getJsonObject("operations")));
+            double minCapacity = baseline.getJsonObject("capacity", new JsonObject()).getDouble("throughput", 0.0)
+                    * (1 - MAX_THROUGHPUT_DECREASE);
+            if (capacity < minCapacity) {
+                regressions.add(String.format("capacity: %.1f requests/s below %.1f/s", capacity, minCapacity));
+            }
+        }
+        JsonObject result = new JsonObject()
+                .put("timestamp", Instant.now().toString())
+                .put("host", host)
+                .put("scenario", new JsonObject()
+                        .put("seed", SEED)
+                        .put("warmupSeconds", WARMUP.getSeconds())
+                        .put("durationSeconds", DURATION.getSeconds())
+                        .put("restRate", REST_RATE)
+                        .put("commandRate", COMMAND_RATE)
+                        .put("incidents", INCIDENTS))
+                .put("operations", operations)
+                .put("capacity", new JsonObject()
+                        .put("clients", CLIENTS)
+                        .put("durationSeconds", CAPACITY_DURATION.getSeconds())
+                        .put("throughput", capacity))
+                .put("regressions", new JsonArray(regressions));
+        write(RESULT, result);
+
+        if (Boolean.getBoolean("perf.update-baseline")) {
+            write(BASELINE, result.copy().put("regressions", new JsonArray()));
+            log.info("Performance baseline updated: " + BASELINE);
+            return;
+        }
+        if (baseline == null) {
+            log.warn("No performance baseline at " + BASELINE + ": record one with -Dperf.update-baseline=true");
+        }
+        assertThat("Performance regressions against " + BASELINE, regressions, empty());
+    }
+
+    private static List<String> compare(JsonObject operations, JsonObject baseline) {
+        List<String> regressions = new ArrayList<>();
+        for (String name : operations.fieldNames()) {
+            JsonObject actual = operations.getJsonObject(name);
+            JsonObject expected = baseline.getJsonObject(name);
+            if (expected == null) {
+                continue;
+            }
+            latency(regressions, name, "p50", actual, expected, MAX_P50_INCREASE);
+            if (actual.getLong("count") >= MIN_P99_SAMPLES) {
+                latency(regressions, name, "p99", actual, expected, MAX_P99_INCREASE);
+            }
+            double errorRate = errorRate(actual);
+            double maxErrorRate = errorRate(expected) + MAX_ERROR_RATE_INCREASE;
+            if (errorRate > maxErrorRate) {
+                regressions.add(String.format("%s: error rate %.3f above %.3f", name, errorRate, maxErrorRate));
+            }
+        }
+        return regressions;
+    }
+
+    /**
+     * What the results depend on besides the code.
+     */
+    private static JsonObject host() {
+        return new JsonObject()
+                .put("processors", Runtime.getRuntime().availableProcessors())
+                .put("arch", System.getProperty("os.arch"))
+                .put("java", System.getProperty("java.specification.version"));
+    }
+
+    private static void latency(List<String> regressions, String name, String percentile, JsonObject actual,
+                                JsonObject expected, double maxIncrease) {
+        double latency = actual.getDouble(percentile);
+        double maxLatency = expected.getDouble(percentile) * (1 + maxIncrease) + LATENCY_SLACK_MS;
+        if (latency > maxLatency) {
+            regressions.add(String.format("%s: %s %.2f ms above %.2f ms", name, percentile, latency, maxLatency));
+        }
+    }
+
+    private static double errorRate(JsonObject operation) {
+        return operation.getLong("errors") / (double) Math.max(1, operation.getLong("count"));
+    }
+
+    private static void write(Path path, JsonObject json) throws Exception {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        Files.write(path, (json.encodePrettily() + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,179 @@
+package com.redhat.emergency.response.incident.load;
+
+import java.net.URI;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.redhat.emergency.response.incident.consumer.IncidentCommandMessageSource;
+import io.smallrye.reactive.messaging.connectors.InMemoryConnector;
+import io.smallrye.reactive.messaging.kafka.IncomingKafkaRecord;
+import io.smallrye.reactive.messaging.kafka.commit.KafkaCommitHandler;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.kafka.client.consumer.impl.KafkaConsumerRecordImpl;
+import io.vertx.mutiny.kafka.client.consumer.KafkaConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+
+/**
+ * Mixed workload of the REST resource and the <code>incident-command</code> consumer, on a set of seeded incidents.
+ * REST requests go through HTTP; Kafka records are handed to {@link IncidentCommandMessageSource#processMessage}, and
+ * complete once acknowledged, as their offset would be committed.
+ */
+public class IncidentWorkload implements AutoCloseable {
+
+    private static final String[] STATUSES = {"ASSIGNED", "PICKEDUP", "RESCUED"};
+
+    private static final KafkaCommitHandler COMMITTED = new KafkaCommitHandler() {
+        @Override
+        public <K, V> CompletionStage<Void> handle(IncomingKafkaRecord<K, V> record) {
+            return CompletableFuture.completedFuture(null);
+        }
+    };
+
+    private interface Operations {
+        void add(String name, int weight, OpenLoadGenerator.Operation operation);
+    }
+
+    private final URL incidents;
+
+    private final IncidentCommandMessageSource source;
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    private final ScheduledExecutorService sinks = Executors.newSingleThreadScheduledExecutor();
+
+    private final HttpClient client;
+
+    private int names;
+
+    private String[] ids;
+
+    private long offset;
+
+    public IncidentWorkload(URL incidents, IncidentCommandMessageSource source, InMemoryConnector connector) {
+        this.incidents = incidents;
+        this.source = source;
+        // HTTP/1.1: one connection per concurrent request, as from independent clients
+        this.client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).executor(executor).build();
+        // the outgoing events are not consumed: drop them rather than hold them for the whole run
+        sinks.scheduleAtFixedRate(() -> {
+            connector.sink("incident-event").clear();
+            connector.sink("incident-event-1").clear();
+        }, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Creates the incidents the workload reads and updates.
+     */
+    public void seed(int count, long seed) throws Exception {
+        names = count;
+        Random random = new Random(seed);
+        for (int i = 0; i < count; i++) {
+            post(incident(random)).toCompletableFuture().get();
+        }
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(incidents.toString())).build(),
+                HttpResponse.BodyHandlers.ofString());
+        ids = new JsonArray(response.body()).stream().map(o -> ((JsonObject) o).getString("id")).toArray(String[]::new);
+    }
+
+    /**
+     * Adds the REST and the command mixes, at the given rates per second.
+     */
+    public void addTo(OpenLoadGenerator generator, double restRate, double commandRate) {
+        rest(generator.mix(restRate)::operation, true);
+        generator.mix(commandRate)
+                .operation("UpdateIncidentCommand status", 60, r -> command("UpdateIncidentCommand",
+                        new JsonObject().put("id", id(r)).put("status", STATUSES[r.nextInt(STATUSES.length)])))
+                .operation("UpdateIncidentCommand location", 35, r -> command("UpdateIncidentCommand",
+                        new JsonObject().put("id", id(r)).put("lat", lat(r)).put("lon", lon(r))))
+                .operation("IncidentReportedEvent ignored", 5, r -> command("IncidentReportedEvent",
+                        new JsonObject().put("id", id(r))));
+    }
+
+    /**
+     * Adds the REST mix but the listing of all the incidents, whose cost grows with every incident the mix creates:
+     * at saturation it would take over the mix, and the outcome would depend on the number of incidents created.
+     */
+    public void addTo(ClosedLoadGenerator generator) {
+        rest(generator::operation, false);
+    }
+
+    private void rest(Operations mix, boolean listAll) {
+        mix.add("GET /incidents/incident/{id}", 40, r -> get("/incident/" + id(r)));
+        if (listAll) {
+            mix.add("GET /incidents", 5, r -> get(""));
+        }
+        mix.add("GET /incidents/{status}", 15, r -> get("/" + STATUSES[r.nextInt(STATUSES.length)]));
+        mix.add("GET /incidents/byname/{name}", 10, r -> get("/byname/victim" + r.nextInt(names)));
+        mix.add("POST /incidents", 30, r -> post(incident(r)));
+    }
+
+    @Override
+    public void close() {
+        sinks.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private String id(Random random) {
+        return ids[random.nextInt(ids.length)];
+    }
+
+    private static double lat(Random random) {
+        return 34.1 + random.nextInt(20000) / 100000.0;
+    }
+
+    private static double lon(Random random) {
+        return -77.9 + random.nextInt(20000) / 100000.0;
+    }
+
+    private JsonObject incident(Random random) {
+        return new JsonObject()
+                .put("lat", lat(random))
+                .put("lon", lon(random))
+                .put("numberOfPeople", 1 + random.nextInt(12))
+                .put("medicalNeeded", random.nextBoolean())
+                .put("victimName", "victim" + random.nextInt(names))
+                .put("victimPhoneNumber", "(111) 123-45678");
+    }
+
+    private CompletionStage<Boolean> get(String path) {
+        return client.sendAsync(HttpRequest.newBuilder(URI.create(incidents + path)).build(), HttpResponse.BodyHandlers.discarding())
+                .thenApply(r -> r.statusCode() < 400);
+    }
+
+    private CompletionStage<Boolean> post(JsonObject incident) {
+        return client.sendAsync(HttpRequest.newBuilder(URI.create(incidents.toString()))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(incident.encode())).build(), HttpResponse.BodyHandlers.discarding())
+                .thenApply(r -> r.statusCode() < 400);
+    }
+
+    private CompletionStage<Boolean> command(String type, JsonObject incident) {
+        RecordHeaders headers = new RecordHeaders();
+        headers.add("ce_specversion", "1.0".getBytes());
+        headers.add("ce_id", Long.toString(offset).getBytes());
+        headers.add("ce_type", type.getBytes());
+        headers.add("ce_source", "load".getBytes());
+        headers.add("ce_datacontenttype", "application/json".getBytes());
+        headers.add("content-type", "application/json".getBytes());
+        ConsumerRecord<String, String> record = new ConsumerRecord<>("topic-incident-command", 0, offset++,
+                System.currentTimeMillis(), TimestampType.CREATE_TIME, (long) ConsumerRecord.NULL_CHECKSUM,
+                ConsumerRecord.NULL_SIZE, ConsumerRecord.NULL_SIZE, incident.getString("id"),
+                new JsonObject().put("incident", incident).encode(), headers);
+        return source.processMessage(new IncomingKafkaRecord<>(new KafkaConsumerRecord<>(new KafkaConsumerRecordImpl<>(record)),
+                COMMITTED, null, true, false))
+                .thenCompose(ack -> ack)
+                .thenApply(v -> true);
+    }
+}
@@ -0,0 +1,33 @@
+package com.redhat.emergency.response.incident.load;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import io.quarkus.test.junit.QuarkusTestProfile;
+
+/**
+ * Production sizing of the bulkheads, flow control, priorities and write-behind, in place of the test configuration
+ * sized for the functional tests.
+ */
+public class LoadProfile implements QuarkusTestProfile {
+
+    @Override
+    public Map<String, String> getConfigOverrides() {
+        Map<String, String> config = new HashMap<>();
+        config.put("quarkus.hibernate-orm.log.sql", "false");
+        config.put("quarkus.log.category.\"org.hibernate.engine.internal.StatisticalLoggingSessionEventListener\".level", "WARN");
+        config.put("quarkus.datasource.jdbc.max-size", "20");
+        config.put("quarkus.datasource.\"read\".jdbc.max-size", "40");
+        config.put("incident.command.flow.high-watermark", "64");
+        config.put("incident.command.flow.low-watermark", "16");
+        config.put("incident.command.latency-trace.enabled", "false");
+        config.put("incident.location.write-behind.enabled", "true");
+        config.put("incident.bulkhead.write.threads", "16");
+        config.put("incident.bulkhead.write.connections", "14");
+        config.put("incident.bulkhead.admin.threads", "2");
+        config.put("incident.bulkhead.admin.queue-size", "4");
+        config.put("incident.priority.high.max-wait-ms", "100");
+        config.put("incident.priority.normal.max-wait-ms", "500");
+        return config;
+    }
+}
@@ -0,0 +1,235 @@
+package com.redhat.emergency.response.incident.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+/**
+ * Open-model load generator: operations arrive as Poisson processes at the rate of their mix, whether or not the
+ * previous ones have completed. Latency is measured from the scheduled arrival rather than from the actual start, so
+ * that a stalled system or a late generator does not hide the requests that would have been waiting meanwhile
+ * (coordinated omission).
+ * <p>
+ * Arrivals and operation picks come from a seeded {@link Random}, on the single thread running {@link #run(Duration)}:
+ * a run is reproducible for a given seed. Operations must not block that thread.
+ */
+public class OpenLoadGenerator {
+
+    public interface Operation {
+        /**
+         * Starts the operation, completing with <code>true</code> on success.
+         */
+        CompletionStage<Boolean> start(Random random);
+    }
+
+    private final Random random;
+
+    private final List<Mix> mixes = new ArrayList<>();
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    public OpenLoadGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * Adds a stream of operations arriving at the given rate, split between its operations by weight.
+     */
+    public Mix mix(double ratePerSecond) {
+        Mix mix = new Mix(ratePerSecond);
+        mixes.add(mix);
+        return mix;
+    }
+
+    /**
+     * Generates the load for the given duration, then waits for the operations in flight to complete.
+     */
+    public void run(Duration duration) throws InterruptedException {
+        long start = System.nanoTime();
+        long end = start + duration.toNanos();
+        for (Mix mix : mixes) {
+            mix.next = start + mix.interArrival(random);
+        }
+        while (true) {
+            Mix mix = mixes.get(0);
+            for (Mix m : mixes) {
+                if (m.next < mix.next) {
+                    mix = m;
+                }
+            }
+            if (mix.next >= end) {
+                break;
+            }
+            long wait;
+            while ((wait = mix.next - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            fire(mix.pick(random), mix.next);
+            mix.next += mix.interArrival(random);
+        }
+        long drained = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < drained) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void fire(Stats stats, long intended) {
+        inFlight.incrementAndGet();
+        CompletionStage<Boolean> stage;
+        try {
+            stage = stats.operation.start(random);
+        } catch (RuntimeException e) {
+            stage = CompletableFuture.failedFuture(e);
+        }
+        stage.whenComplete((success, failure) -> {
+            stats.histogram.recordValue(System.nanoTime() - intended);
+            if (failure != null || !Boolean.TRUE.equals(success)) {
+                stats.errors.increment();
+            }
+            inFlight.decrementAndGet();
+        });
+    }
+
+    /**
+     * Clears the statistics, at the end of a warm-up.
+     */
+    public void reset() {
+        for (Mix mix : mixes) {
+            for (Stats stats : mix.operations) {
+                stats.histogram.reset();
+                stats.errors.reset();
+            }
+        }
+    }
+
+    /**
+     * Throughput, errors and latency percentiles of every operation, over a run of the given duration.
+     */
+    public List<Result> results(Duration duration) {
+        double seconds = duration.toMillis() / 1000.0;
+        List<Result> results = new ArrayList<>();
+        for (Mix mix : mixes) {
+            for (Stats stats : mix.operations) {
+                Histogram h = stats.histogram;
+                long errors = stats.errors.sum();
+                results.add(new Result(stats.name, h.getTotalCount(), errors, (h.getTotalCount() - errors) / seconds,
+                        millis(h.getValueAtPercentile(50)), millis(h.getValueAtPercentile(99)),
+                        millis(h.getValueAtPercentile(99.9)), millis(h.getMaxValue())));
+            }
+        }
+        return results;
+    }
+
+    public String report(Duration duration) {
+        StringBuilder report = new StringBuilder(String.format("%-32s %9s %9s %7s %9s %9s %9s %9s%n",
+                "operation", "count", "ok/s", "errors", "p50 ms", "p99 ms", "p99.9 ms", "max ms"));
+        for (Result r : results(duration)) {
+            report.append(String.format("%-32s %9d %9.1f %7d %9.2f %9.2f %9.2f %9.2f%n", r.name, r.count, r.throughput,
+                    r.errors, r.p50, r.p99, r.p999, r.max));
+        }
+        return report.toString();
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    /**
+     * Statistics of an operation over a run: successful operations per second, and latencies in milliseconds.
+     */
+    public static class Result {
+
+        public final String name;
+
+        public final long count;
+
+        public final long errors;
+
+        public final double throughput;
+
+        public final double p50;
+
+        public final double p99;
+
+        public final double p999;
+
+        public final double max;
+
+        Result(String name, long count, long errors, double throughput, double p50, double p99, double p999, double max) {
+            this.name = name;
+            this.count = count;
+            this.errors = errors;
+            this.throughput = throughput;
+            this.p50 = p50;
+            this.p99 = p99;
+            this.p999 = p999;
+            this.max = max;
+        }
+    }
+
+    public static class Mix {
+
+        private final double meanInterArrival;
+
+        private final List<Stats> operations = new ArrayList<>();
+
+        private int totalWeight;
+
+        private long next;
+
+        private Mix(double ratePerSecond) {
+            this.meanInterArrival = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+        }
+
+        public Mix operation(String name, int weight, Operation operation) {
+            operations.add(new Stats(name, weight, operation));
+            totalWeight += weight;
+            return this;
+        }
+
+        private long interArrival(Random random) {
+            return (long) (-Math.log(1 - random.nextDouble()) * meanInterArrival);
+        }
+
+        private Stats pick(Random random) {
+            int n = random.nextInt(totalWeight);
+            for (Stats stats : operations) {
+                n -= stats.weight;
+                if (n < 0) {
+                    return stats;
+                }
+            }
+            throw new IllegalStateException();
+        }
+    }
+
+    private static class Stats {
+
+        private final String name;
+
+        private final int weight;
+
+        private final Operation operation;
+
+        // auto-resizing, in nanoseconds with 3 significant digits
+        private final Histogram histogram = new ConcurrentHistogram(3);
+
+        private final LongAdder errors = new LongAdder();
+
+        private Stats(String name, int weight, Operation operation) {
+            this.name = name;
+            this.weight = weight;
+            this.operation = operation;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+package com.redhat.emergency.response.incident.load;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Startup time and footprint of the packaged application, started as a process of its own for each run: the time
+ * from the launch to the first successful <code>GET /incidents</code> and to the first ready readiness probe, the
+ * resident set size once idle, and its peak under a read load. Reports the median of the runs.
+ * <p>
+ * The application serves before it is ready: on the JVM the readiness waits for the JIT warm-up, and the time to
+ * ready is the one that matters when scaling out, as the pod only gets traffic once ready. Compare with
+ * <code>-Dstartup.command="java -Dquarkus.profile=fast-start -jar ..."</code>, which skips the warm-up.
+ * <p>
+ * Run after <code>mvn package</code> with <code>mvn test -Pbenchmark -Dtest=StartupBenchmarkTest</code>, against the
+ * database and Kafka configured through the environment (<code>QUARKUS_DATASOURCE_JDBC_URL</code>,
+ * <code>KAFKA_BOOTSTRAP_SERVERS</code>, ...). The runner jar is started with its AppCDS archive when packaged with
+ * <code>-Pappcds</code>; <code>-Dstartup.command=./incident-service-quarkus-1.0.0-SNAPSHOT-runner</code> benchmarks
+ * the native executable, started from <code>target</code>. Tuned with the <code>startup.*</code> system properties:
+ * <code>runs</code>, <code>url</code>, <code>ready-url</code>, <code>idle-s</code>, <code>load-s</code> and
+ * <code>load.rate</code> (per second). The resident set size is read from <code>/proc</code>, on Linux only.
+ */
+@Tag("benchmark")
+public class StartupBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(StartupBenchmarkTest.class);
+
+    private static final Path TARGET = Paths.get("target");
+
+    private static final int RUNS = Integer.getInteger("startup.runs", 5);
+
+    private static final URI URL = URI.create(System.getProperty("startup.url", "http://localhost:8080/incidents"));
+
+    private static final URI READY_URL = URI.create(System.getProperty("startup.ready-url",
+            URL.resolve("/health/ready").toString()));
+
+    private static final Duration IDLE = Duration.ofSeconds(Long.getLong("startup.idle-s", 5));
+
+    private static final Duration LOAD = Duration.ofSeconds(Long.getLong("startup.load-s", 20));
+
+    private static final double LOAD_RATE = Double.parseDouble(System.getProperty("startup.load.rate", "200"));
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(60);
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(1)).build();
+
+    @Test
+    void benchmarkStartup() throws Exception {
+        List<String> command = command();
+        assumeTrue(command != null, "No runner jar in target, run mvn package first");
+        assumeTrue(Files.isDirectory(Paths.get("/proc/self")), "The resident set size is only read on Linux");
+        List<Run> runs = new ArrayList<>();
+        for (int i = 0; i < RUNS; i++) {
+            Run run = run(command, i);
+            log.info("Run " + i + ": " + run);
+            runs.add(run);
+        }
+        log.info(String.format("%s, median of %d runs:%n  first response %d ms%n  ready %d ms%n  idle RSS %d MB%n"
+                        + "  peak RSS under %.0f requests/s %d MB",
+                String.join(" ", command), RUNS, median(runs, r -> r.firstResponseMs), median(runs, r -> r.readyMs),
+                median(runs, r -> r.idleRssKb) / 1024, LOAD_RATE, median(runs, r -> r.loadRssKb) / 1024));
+    }
+
+    /**
+     * The command starting the application, from <code>startup.command</code> or the runner jar.
+     */
+    private static List<String> command() throws IOException {
+        String command = System.getProperty("startup.command");
+        if (command != null) {
+            return Arrays.asList(command.trim().split("\\s+"));
+        }
+        if (!Files.isDirectory(TARGET)) {
+            return null;
+        }
+        String jar;
+        try (Stream<Path> files = Files.list(TARGET)) {
+            jar = files.map(p -> p.getFileName().toString()).filter(n -> n.endsWith("-runner.jar")).findFirst().orElse(null);
+        }
+        if (jar == null) {
+            return null;
+        }
+        List<String> java = new ArrayList<>(Arrays.asList(
+                Paths.get(System.getProperty("java.home"), "bin", "java").toString(),
+                "-Djava.util.logging.manager=org.jboss.logmanager.LogManager"));
+        if (Files.exists(TARGET.resolve("app-cds.jsa"))) {
+            java.add("-XX:SharedArchiveFile=app-cds.jsa");
+            java.add("-Xshare:auto");
+        }
+        java.add("-jar");
+        java.add(jar);
+        return java;
+    }
+
+    private Run run(List<String> command, int index) throws Exception {
+        File output = TARGET.resolve("startup-" + index + ".log").toFile();
+        long start = System.nanoTime();
+        Process process = new ProcessBuilder(command).directory(TARGET.toFile())
+                .redirectErrorStream(true).redirectOutput(output).start();
+        try {
+            long[] startup = startup(process, start);
+            Thread.sleep(IDLE.toMillis());
+            long idleRssKb = rss(process);
+
+            AtomicLong peakRssKb = new AtomicLong(idleRssKb);
+            ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor();
+            sampler.scheduleAtFixedRate(() -> peakRssKb.accumulateAndGet(rss(process), Math::max), 100, 100, TimeUnit.MILLISECONDS);
+            try {
+                OpenLoadGenerator generator = new OpenLoadGenerator(index);
+                generator.mix(LOAD_RATE).operation("GET /incidents", 1, random ->
+                        client.sendAsync(HttpRequest.newBuilder(URL).build(), HttpResponse.BodyHandlers.discarding())
+                                .thenApply(r -> r.statusCode() < 400));
+                generator.run(LOAD);
+            } finally {
+                sampler.shutdownNow();
+                sampler.awaitTermination(1, TimeUnit.SECONDS);
+            }
+            return new Run(startup[0], startup[1], idleRssKb, peakRssKb.get());
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    /**
+     * Polls the application and its readiness until both answer with a 200.
+     *
+     * @return the milliseconds from the launch to the first response and to the readiness
+     */
+    private long[] startup(Process process, long start) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT.toMillis();
+        HttpRequest request = HttpRequest.newBuilder(URL).timeout(Duration.ofSeconds(1)).build();
+        HttpRequest ready = HttpRequest.newBuilder(READY_URL).timeout(Duration.ofSeconds(1)).build();
+        long firstResponseMs = -1;
+        long readyMs = -1;
+        while (System.currentTimeMillis() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("Application exited with " + process.exitValue() + ", see target/startup-*.log");
+            }
+            if (firstResponseMs < 0 && isOk(request)) {
+                firstResponseMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            }
+            if (readyMs < 0 && isOk(ready)) {
+                readyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            }
+            if (firstResponseMs >= 0 && readyMs >= 0) {
+                return new long[]{firstResponseMs, readyMs};
+            }
+            Thread.sleep(10);
+        }
+        throw new IllegalStateException("No successful response from " + (firstResponseMs < 0 ? URL : READY_URL)
+                + " within " + TIMEOUT);
+    }
+
+    private boolean isOk(HttpRequest request) throws InterruptedException {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            // not listening yet
+            return false;
+        }
+    }
+
+    /**
+     * The resident set size of the process, in kB.
+     */
+    private static long rss(Process process) {
+        try (Stream<String> lines = Files.lines(Paths.get("/proc", Long.toString(process.pid()), "status"))) {
+            return lines.filter(l -> l.startsWith("VmRSS:"))
+                    .map(l -> Long.parseLong(l.replaceAll("[^0-9]", "")))
+                    .findFirst().orElse(0L);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static long median(List<Run> runs, ToLongFunction<Run> value) {
+        List<Long> values = runs.stream().map(value::applyAsLong).sorted().collect(Collectors.toList());
+        return values.isEmpty() ? 0 : values.get(values.size() / 2);
+    }
+
+    private static final class Run {
+
+        private final long firstResponseMs;
+
+        private final long readyMs;
+
+        private final long idleRssKb;
+
+        private final long loadRssKb;
+
+        Run(long firstResponseMs, long readyMs, long idleRssKb, long loadRssKb) {
+            this.firstResponseMs = firstResponseMs;
+            this.readyMs = readyMs;
+            this.idleRssKb = idleRssKb;
+            this.loadRssKb = loadRssKb;
+        }
+
+        @Override
+        public String toString() {
+            return "first response " + firstResponseMs + " ms, ready " + readyMs + " ms, idle RSS " + idleRssKb / 1024
+                    + " MB, peak RSS under load " + loadRssKb / 1024 + " MB";
+        }
+    }
+}
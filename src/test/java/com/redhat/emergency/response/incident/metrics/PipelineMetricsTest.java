@@ -0,0 +1,63 @@
+package com.redhat.emergency.response.incident.metrics;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.sameInstance;
+
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class PipelineMetricsTest {
+
+    @Inject
+    PipelineMetrics metrics;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Test
+    void testRecord() {
+        long start = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(5);
+        metrics.record(PipelineMetrics.Stage.HANDLER, PipelineMetrics.Action.RESET_STATUS, PipelineMetrics.Outcome.REJECTED, start);
+        Timer timer = meterRegistry.get("incident.pipeline").tag("stage", "handler").tag("action", "resetStatus")
+                .tag("outcome", "rejected").timer();
+        long count = timer.count();
+
+        metrics.record(PipelineMetrics.Stage.HANDLER, PipelineMetrics.Action.RESET_STATUS, PipelineMetrics.Outcome.REJECTED, start);
+
+        assertThat(timer.count(), equalTo(count + 1));
+        assertThat(timer.max(TimeUnit.MILLISECONDS), greaterThan(5.0 - 0.001));
+        assertThat(timer.takeSnapshot().histogramCounts().length, greaterThan(0));
+        assertThat(meterRegistry.get("incident.pipeline").tag("stage", "handler").tag("action", "resetStatus")
+                .tag("outcome", "rejected").timer(), sameInstance(timer));
+    }
+
+    @Test
+    void testActionOf() {
+        assertThat(PipelineMetrics.Action.of("incidentsByName"), equalTo(PipelineMetrics.Action.INCIDENTS_BY_NAME));
+        assertThat(PipelineMetrics.Action.of("createIncident"), equalTo(PipelineMetrics.Action.CREATE_INCIDENT));
+        assertThat(PipelineMetrics.Action.of("resetStatus"), equalTo(PipelineMetrics.Action.RESET_STATUS));
+        assertThat(PipelineMetrics.Action.of("other"), equalTo(PipelineMetrics.Action.UNKNOWN));
+        assertThat(PipelineMetrics.Action.of(null), equalTo(PipelineMetrics.Action.UNKNOWN));
+    }
+
+    @Test
+    void testRequestStages() {
+        given().when().get("/incidents").then().assertThat().statusCode(200);
+
+        for (String stage : new String[]{"http", "transit", "wait", "handler", "serialization"}) {
+            assertThat(stage, meterRegistry.get("incident.pipeline").tag("stage", stage).tag("action", "incidents")
+                    .tag("outcome", "success").timer().count(), greaterThan(0L));
+        }
+        assertThat(meterRegistry.get("incident.query").tag("query", "Incident.viewAll").tag("outcome", "success")
+                .timer().count(), greaterThan(0L));
+    }
+}
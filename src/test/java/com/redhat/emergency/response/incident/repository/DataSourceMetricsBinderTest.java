@@ -0,0 +1,39 @@
+package com.redhat.emergency.response.incident.repository;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class DataSourceMetricsBinderTest {
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Test
+    void testPoolMetrics() {
+        FunctionTimer wait = meterRegistry.get("incident.datasource.acquire.wait").tag("datasource", "read").functionTimer();
+        double count = wait.count();
+
+        given().when().get("/incidents").then().assertThat().statusCode(200);
+
+        assertThat(meterRegistry.get("incident.datasource.acquire").tag("datasource", "read").functionCounter().count(),
+                greaterThan(0.0));
+        // one sample per acquisition, as counted by the pool
+        assertThat(wait.count(), greaterThan(count));
+        assertThat(wait.totalTime(TimeUnit.NANOSECONDS), greaterThanOrEqualTo(0.0));
+        for (String gauge : new String[]{"connections.active", "connections.available", "connections.max.used", "acquire.waiting"}) {
+            assertThat(gauge, meterRegistry.get("incident.datasource." + gauge).tag("datasource", "default").gauge().value(),
+                    greaterThanOrEqualTo(0.0));
+        }
+    }
+}
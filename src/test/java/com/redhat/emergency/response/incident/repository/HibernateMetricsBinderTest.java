@@ -0,0 +1,58 @@
+package com.redhat.emergency.response.incident.repository;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+
+import java.time.Instant;
+import javax.inject.Inject;
+import javax.transaction.Transactional;
+
+import com.redhat.emergency.response.incident.entity.Incident;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class HibernateMetricsBinderTest {
+
+    @Inject
+    IncidentRepository repository;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Test
+    @Transactional
+    void testNamedQueryMetrics() {
+        Incident incident = new Incident();
+        incident.setIncidentId("metrics-1");
+        incident.setLatitude("30.12345");
+        incident.setLongitude("-70.98765");
+        incident.setNumberOfPeople(3);
+        incident.setMedicalNeeded(true);
+        incident.setVictimName("Metrics Victim");
+        incident.setVictimPhoneNumber("(111) 456-78990");
+        incident.setReportedTime(Instant.now());
+        incident.setStatus("REPORTED");
+        repository.create(incident);
+
+        FunctionTimer timer = meterRegistry.get("hibernate.named.query").tag("entityManagerFactory", "default")
+                .tag("query", "Incident.findByName").functionTimer();
+        FunctionCounter rows = meterRegistry.get("hibernate.named.query.rows").tag("entityManagerFactory", "default")
+                .tag("query", "Incident.findByName").functionCounter();
+        double count = timer.count();
+        double fetched = rows.count();
+
+        assertThat(repository.findByName("metrics victim").size(), equalTo(1));
+
+        assertThat(timer.count(), equalTo(count + 1));
+        assertThat(rows.count(), equalTo(fetched + 1));
+        assertThat(meterRegistry.get("hibernate.named.query.max").tag("entityManagerFactory", "default")
+                .tag("query", "Incident.findByName").timeGauge().value(), greaterThanOrEqualTo(0.0));
+        assertThat(meterRegistry.get("hibernate.named.query").tag("entityManagerFactory", "read")
+                .tag("query", "Incident.viewAll").functionTimer().count(), greaterThanOrEqualTo(0.0));
+    }
+}
@@ -0,0 +1,84 @@
+package com.redhat.emergency.response.incident.repository;
+
+import static com.redhat.emergency.response.incident.entity.IncidentFixtures.incident;
+
+import java.util.concurrent.ThreadLocalRandom;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.UserTransaction;
+
+import com.redhat.emergency.response.incident.entity.Incident;
+import com.redhat.emergency.response.incident.repository.IncidentRepositoryTest.TransactionTemplate;
+import io.quarkus.test.junit.QuarkusTest;
+import org.hibernate.CacheMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Repeated lookups by incident id on the primary persistence unit, with and without the second-level and query
+ * caches: database round trips (prepared statements) and throughput. This is the lookup the write path of
+ * <code>IncidentService</code> runs before every update; the other service reads go to the read persistence unit,
+ * which has no cache. Every write to <code>reported_incident</code> invalidates the cached query results of the pod,
+ * so the gain shrinks as the write rate grows: <code>-Dcache.write-every=n</code> updates an incident every n reads.
+ * Run with <code>mvn test -Pbenchmark</code>.
+ */
+@QuarkusTest
+@Tag("benchmark")
+public class IncidentCacheBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentCacheBenchmarkTest.class);
+
+    private static final int INCIDENTS = 200;
+
+    private static final int READS = 20_000;
+
+    private static final int WRITE_EVERY = Integer.getInteger("cache.write-every", 0);
+
+    @Inject
+    IncidentRepository repository;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction transaction;
+
+    @Test
+    void benchmarkRepeatedReads() {
+        new TransactionTemplate(transaction).execute(() -> {
+            repository.deleteAll();
+            for (int i = 0; i < INCIDENTS; i++) {
+                repository.create(incident("incident" + i));
+            }
+            return null;
+        });
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        for (int round = 0; round < 3; round++) {
+            for (CacheMode cacheMode : new CacheMode[]{CacheMode.IGNORE, CacheMode.NORMAL}) {
+                statistics.clear();
+                long start = System.nanoTime();
+                for (int i = 0; i < READS; i++) {
+                    int n = ThreadLocalRandom.current().nextInt(INCIDENTS);
+                    boolean write = WRITE_EVERY > 0 && i % WRITE_EVERY == 0;
+                    new TransactionTemplate(transaction).execute(() -> {
+                        entityManager.unwrap(Session.class).setCacheMode(cacheMode);
+                        Incident incident = repository.findByIncidentId("incident" + n);
+                        if (write) {
+                            incident.setNumberOfPeople(incident.getNumberOfPeople() + 1);
+                        }
+                        return incident;
+                    });
+                }
+                double seconds = (System.nanoTime() - start) / 1e9;
+                log.info(String.format("%d lookups, cache %s: %d statements, %.0f lookups/s, query cache hit ratio %.2f", READS, cacheMode,
+                        statistics.getPrepareStatementCount(), READS / seconds,
+                        statistics.getQueryCacheHitCount() / (double) Math.max(1, statistics.getQueryExecutionCount() + statistics.getQueryCacheHitCount())));
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.redhat.emergency.response.incident.repository;
+
+import static com.redhat.emergency.response.incident.entity.IncidentFixtures.incident;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.sql.Statement;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import javax.transaction.UserTransaction;
+
+import com.redhat.emergency.response.incident.entity.Incident;
+import com.redhat.emergency.response.incident.repository.IncidentRepositoryTest.TransactionTemplate;
+import com.redhat.emergency.response.incident.service.IncidentService;
+import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.json.JsonObject;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class IncidentCacheTest {
+
+    @Inject
+    IncidentRepository repository;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction transaction;
+
+    @Inject
+    IncidentService incidentService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void init() {
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        new TransactionTemplate(transaction).execute(() -> {
+            repository.deleteAll();
+            repository.create(incident("incident1", "REPORTED"));
+            repository.create(incident("incident2", "REPORTED"));
+            return null;
+        });
+        statistics.clear();
+    }
+
+    @Test
+    void testRepeatedReadsAreCached() {
+        for (int i = 0; i < 5; i++) {
+            new TransactionTemplate(transaction).execute(() -> repository.findByIncidentId("incident1"));
+        }
+
+        assertThat(statistics.getPrepareStatementCount(), equalTo(1L));
+        assertThat(statistics.getQueryCacheHitCount(), equalTo(4L));
+        assertThat(statistics.getSecondLevelCacheHitCount(), greaterThan(0L));
+    }
+
+    @Test
+    void testDirtyCheckedUpdateInvalidates() {
+        assertThat(statusOf("incident1"), equalTo("REPORTED"));
+        updateStatus("incident1", "ASSIGNED");
+
+        assertThat(statusOf("incident1"), equalTo("ASSIGNED"));
+    }
+
+    @Test
+    void testMergeInvalidates() {
+        Incident detached = new TransactionTemplate(transaction).execute(() -> repository.findByIncidentId("incident1"));
+        detached.setStatus("PICKEDUP");
+        new TransactionTemplate(transaction).execute(() -> repository.merge(detached));
+
+        assertThat(statusOf("incident1"), equalTo("PICKEDUP"));
+    }
+
+    @Test
+    void testBulkDeleteInvalidates() {
+        new TransactionTemplate(transaction).execute(() -> repository.findByIncidentId("incident1"));
+        new TransactionTemplate(transaction).execute(() -> {
+            repository.deleteAll();
+            return null;
+        });
+
+        assertThat(new TransactionTemplate(transaction).execute(() -> repository.findByIncidentId("incident1")), nullValue());
+    }
+
+    @Test
+    void testUpdateOfIncidentWrittenByAnotherReplica() {
+        assertThat(statusOf("incident1"), equalTo("REPORTED"));
+        // written behind the back of Hibernate, as by another replica: the cached incident is stale
+        new TransactionTemplate(transaction).execute(() -> entityManager.unwrap(Session.class).doReturningWork(connection -> {
+            try (Statement statement = connection.createStatement()) {
+                return statement.executeUpdate("UPDATE reported_incident SET incident_status = 'PICKEDUP', version = version + 1 WHERE incident_id = 'incident1'");
+            }
+        }));
+        assertThat(statusOf("incident1"), equalTo("REPORTED"));
+
+        incidentService.updateIncident(new JsonObject().put("id", "incident1").put("status", "RESCUED"));
+
+        assertThat(statusOf("incident1"), equalTo("RESCUED"));
+    }
+
+    @Transactional
+    void updateStatus(String incidentId, String status) {
+        repository.findByIncidentId(incidentId).setStatus(status);
+    }
+
+    private String statusOf(String incidentId) {
+        return new TransactionTemplate(transaction).execute(() -> repository.findByIncidentId(incidentId).getStatus());
+    }
+}
@@ -0,0 +1,79 @@
+package com.redhat.emergency.response.incident.repository;
+
+import static com.redhat.emergency.response.incident.entity.IncidentFixtures.incident;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.UserTransaction;
+
+import com.redhat.emergency.response.incident.repository.IncidentRepositoryTest.TransactionCallback;
+import com.redhat.emergency.response.incident.repository.IncidentRepositoryTest.TransactionTemplate;
+import com.sun.management.ThreadMXBean;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Loads 100k incidents as managed entities and as {@link com.redhat.emergency.response.incident.model.IncidentView}
+ * projections: latency and bytes allocated by the calling thread, commit included.
+ * Run with <code>mvn test -Pbenchmark</code>.
+ */
+@QuarkusTest
+@Tag("benchmark")
+public class IncidentProjectionBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentProjectionBenchmarkTest.class);
+
+    private static final int ROWS = 100_000;
+
+    private static final int BATCH = 1000;
+
+    @Inject
+    IncidentRepository repository;
+
+    @Inject
+    IncidentReadRepository readRepository;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction transaction;
+
+    @Test
+    void benchmarkFindAll() {
+        new TransactionTemplate(transaction).execute(() -> {
+            repository.deleteAll();
+            return null;
+        });
+        for (int b = 0; b < ROWS / BATCH; b++) {
+            int offset = b * BATCH;
+            new TransactionTemplate(transaction).execute(() -> {
+                for (int i = 0; i < BATCH; i++) {
+                    repository.create(incident("incident" + (offset + i)));
+                }
+                entityManager.flush();
+                entityManager.clear();
+                return null;
+            });
+        }
+        for (int round = 0; round < 5; round++) {
+            measure("entities", () -> repository.findAll());
+            measure("projections", () -> readRepository.findAll());
+        }
+    }
+
+    private void measure(String name, TransactionCallback<List<?>> query) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        long start = System.nanoTime();
+        List<?> result = new TransactionTemplate(transaction).execute(query);
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated;
+        log.info(String.format("findAll %d rows as %s: %d ms, %.1f MB allocated", result.size(), name, millis, allocated / 1e6));
+    }
+}
@@ -0,0 +1,84 @@
+package com.redhat.emergency.response.incident.repository;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.containsStringIgnoringCase;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Collections;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.flywaydb.core.Flyway;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+/**
+ * Checks that the SQL Hibernate generates for the named queries is served by the indexes created by the
+ * migrations. The PostgreSQL variant runs against the database given with
+ * <code>-Dtest.postgresql.url=jdbc:postgresql://localhost:5432/emergency-response</code>
+ * (and <code>test.postgresql.username</code>, <code>test.postgresql.password</code>).
+ */
+@QuarkusTest
+public class IncidentQueryPlanTest {
+
+    @Inject
+    EntityManager entityManager;
+
+    @Test
+    void testH2QueryPlans() {
+        assertThat(explainH2(sql("Incident.byIncidentId", "'incident1'")), containsStringIgnoringCase("reported_incident_incident_id_idx"));
+        assertThat(explainH2(sql("Incident.byStatus", "'REPORTED'")), containsStringIgnoringCase("reported_incident_status_idx"));
+        assertThat(explainH2("SELECT * FROM reported_incident WHERE reported_time > CURRENT_TIMESTAMP"), containsStringIgnoringCase("reported_incident_reported_time_idx"));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "test.postgresql.url", matches = ".+")
+    void testPostgreSQLQueryPlans() throws Exception {
+        String url = System.getProperty("test.postgresql.url");
+        String username = System.getProperty("test.postgresql.username", "eruser");
+        String password = System.getProperty("test.postgresql.password", "erpassword");
+        Flyway.configure().dataSource(url, username, password)
+                .locations("db/migration/common", "db/migration/postgresql")
+                .baselineOnMigrate(true).baselineVersion("0")
+                .load().migrate();
+        try (Connection connection = DriverManager.getConnection(url, username, password);
+             Statement statement = connection.createStatement()) {
+            // the planner prefers a sequential scan on a near empty table
+            statement.execute("SET enable_seqscan = off");
+            assertThat(explain(statement, sql("Incident.byIncidentId", "'incident1'")), containsString("reported_incident_incident_id_idx"));
+            assertThat(explain(statement, sql("Incident.byStatus", "'REPORTED'")), containsString("reported_incident_status_idx"));
+            assertThat(explain(statement, sql("Incident.findByName", "'john%'")), containsString("reported_incident_victim_name_idx"));
+            assertThat(explain(statement, "SELECT * FROM reported_incident WHERE reported_time > now()"), containsString("reported_incident_reported_time_idx"));
+        }
+    }
+
+    private String sql(String namedQuery, String... parameters) {
+        SessionFactoryImplementor sessionFactory = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class);
+        String hql = sessionFactory.getNamedQueryRepository().getNamedQueryDefinition(namedQuery).getQueryString();
+        String sql = sessionFactory.getQueryPlanCache().getHQLQueryPlan(hql, false, Collections.emptyMap()).getSqlStrings()[0];
+        for (String parameter : parameters) {
+            sql = sql.replaceFirst("\\?", parameter);
+        }
+        return sql;
+    }
+
+    private String explainH2(String sql) {
+        return String.valueOf(entityManager.createNativeQuery("EXPLAIN " + sql).getSingleResult());
+    }
+
+    private String explain(Statement statement, String sql) throws Exception {
+        StringBuilder plan = new StringBuilder();
+        try (ResultSet resultSet = statement.executeQuery("EXPLAIN " + sql)) {
+            while (resultSet.next()) {
+                plan.append(resultSet.getString(1)).append('\n');
+            }
+        }
+        return plan.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package com.redhat.emergency.response.incident.repository;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Instant;
+import java.util.List;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.QueryTimeoutException;
+import javax.transaction.Transactional;
+
+import com.redhat.emergency.response.incident.entity.Incident;
+import com.redhat.emergency.response.incident.model.IncidentView;
+import io.quarkus.hibernate.orm.PersistenceUnit;
+import io.quarkus.test.junit.QuarkusTest;
+import org.hibernate.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class IncidentReadRepositoryTest {
+
+    @Inject
+    IncidentReadRepository readRepository;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    @PersistenceUnit("read")
+    EntityManager readEntityManager;
+
+    @BeforeEach
+    @Transactional
+    void init() {
+        entityManager.createQuery("DELETE FROM Incident").executeUpdate();
+        Incident incident = new Incident();
+        incident.setIncidentId("incident1");
+        incident.setLatitude("30.12345");
+        incident.setLongitude("-70.98765");
+        incident.setNumberOfPeople(3);
+        incident.setMedicalNeeded(true);
+        incident.setVictimName("John Doe");
+        incident.setVictimPhoneNumber("(111) 456-78990");
+        incident.setReportedTime(Instant.now());
+        incident.setStatus("REPORTED");
+        entityManager.persist(incident);
+    }
+
+    @Test
+    @Transactional
+    void testFindAll() {
+        List<IncidentView> incidents = readRepository.findAll();
+        assertThat(incidents.size(), equalTo(1));
+        IncidentView view = incidents.get(0);
+        assertThat(view.getIncidentId(), equalTo("incident1"));
+        assertThat(view.getLatitude(), equalTo("30.12345"));
+        assertThat(view.getLongitude(), equalTo("-70.98765"));
+        assertThat(view.getNumberOfPeople(), equalTo(3));
+        assertThat(view.isMedicalNeeded(), equalTo(true));
+        assertThat(view.getVictimName(), equalTo("John Doe"));
+        assertThat(view.getVictimPhoneNumber(), equalTo("(111) 456-78990"));
+        assertThat(view.getStatus(), equalTo("REPORTED"));
+        assertThat(readEntityManager.unwrap(Session.class).getStatistics().getEntityCount(), equalTo(0));
+    }
+
+    @Test
+    @Transactional
+    void testFindByIncidentId() {
+        assertThat(readRepository.findByIncidentId("incident1"), notNullValue());
+        assertThat(readRepository.findByIncidentId("incident2"), nullValue());
+        assertThat(readRepository.findByIncidentId(null), nullValue());
+    }
+
+    @Test
+    @Transactional
+    void testFindByStatusAndName() {
+        assertThat(readRepository.findByStatus("reported").size(), equalTo(1));
+        assertThat(readRepository.findByName("john%").size(), equalTo(1));
+        assertThat(readRepository.findByName("jane%").size(), equalTo(0));
+    }
+
+    @Test
+    @Transactional
+    void testQueryPastRequestDeadline() {
+        assertThrows(QueryTimeoutException.class,
+                () -> RequestDeadline.run(System.currentTimeMillis() - 1, () -> readRepository.findAll()));
+        RequestDeadline.run(System.currentTimeMillis() + 5000, () -> assertThat(readRepository.findAll().size(), equalTo(1)));
+    }
+
+    @Test
+    void testQueryTimeoutIsRoundedUpToTheSecond() {
+        // Hibernate times queries out in whole seconds: 300 ms must not round down to 0, that is no timeout
+        RequestDeadline.run(System.currentTimeMillis() + 300, () -> assertThat(timeoutOf(), equalTo(1)));
+        RequestDeadline.run(System.currentTimeMillis() + 2500, () -> assertThat(timeoutOf(), equalTo(3)));
+    }
+
+    private Integer timeoutOf() {
+        return RequestDeadline.apply(readEntityManager.createNamedQuery("Incident.byIncidentId", Incident.class))
+                .unwrap(org.hibernate.query.Query.class).getTimeout();
+    }
+}
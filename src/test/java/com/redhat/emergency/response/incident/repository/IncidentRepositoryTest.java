@@ -2,6 +2,7 @@ package com.redhat.emergency.response.incident.repository;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.anyOf;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
@@ -9,15 +10,21 @@ import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.Matchers.startsWith;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.LockModeType;
+import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 import javax.transaction.UserTransaction;
 
 import com.redhat.emergency.response.incident.entity.Incident;
 import io.quarkus.test.junit.QuarkusTest;
+import org.hibernate.LockOptions;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.PostgreSQL10Dialect;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -37,6 +44,7 @@ public class IncidentRepositoryTest {
     @Transactional
     void clearTable() {
         entityManager.createQuery("DELETE FROM Incident").executeUpdate();
+        entityManager.createNativeQuery("DELETE FROM archived_incident").executeUpdate();
     }
 
     /**
@@ -556,6 +564,149 @@ public class IncidentRepositoryTest {
         createIncidents(Arrays.asList(incident1, incident2, incident3));
     }
 
+    /**
+     *  Test description:
+     *
+     *    When:
+     *      There are Incident records in the database
+     *      Some of the Incidents are in a terminal status and reported before the given time
+     *      A call is made to `archive`
+     *
+     *    Then:
+     *      The matching Incidents are moved to the archive table
+     *      The other Incidents remain in the live table
+     *      The archived Incidents are found by `findArchived`, `findArchivedByIncidentId`, `findArchivedByStatus`
+     *      and `findArchivedByName`
+     *
+     */
+    @Test
+    void testArchive() {
+        Instant old = Instant.now().minusSeconds(3600);
+
+        Incident incident1 = new Incident();
+        incident1.setIncidentId("incident1");
+        incident1.setLatitude("30.12345");
+        incident1.setLongitude("-70.98765");
+        incident1.setNumberOfPeople(3);
+        incident1.setMedicalNeeded(true);
+        incident1.setVictimName("John Doe I");
+        incident1.setVictimPhoneNumber("(111) 456-78990");
+        incident1.setReportedTime(old);
+        incident1.setStatus("RESCUED");
+
+        Incident incident2 = new Incident();
+        incident2.setIncidentId("incident2");
+        incident2.setLatitude("31.12345");
+        incident2.setLongitude("-71.98765");
+        incident2.setNumberOfPeople(4);
+        incident2.setMedicalNeeded(true);
+        incident2.setVictimName("John Doe II");
+        incident2.setVictimPhoneNumber("(211) 456-78990");
+        incident2.setReportedTime(old);
+        incident2.setStatus("ASSIGNED");
+
+        Incident incident3 = new Incident();
+        incident3.setIncidentId("incident3");
+        incident3.setLatitude("32.12345");
+        incident3.setLongitude("-72.98765");
+        incident3.setNumberOfPeople(5);
+        incident3.setMedicalNeeded(true);
+        incident3.setVictimName("John Doe III");
+        incident3.setVictimPhoneNumber("(311) 456-78990");
+        incident3.setReportedTime(Instant.now());
+        incident3.setStatus("CANCELLED");
+
+        createIncidents(Arrays.asList(incident1, incident2, incident3));
+
+        Integer archived = new TransactionTemplate(transaction).execute(() -> repository.archive(Arrays.asList("RESCUED", "CANCELLED"), Instant.now().minusSeconds(60), 10));
+        assertThat(archived, equalTo(1));
+
+        List<?> live = getAllIncidents();
+        assertThat(live.size(), equalTo(2));
+
+        List<Incident> incidents = new TransactionTemplate(transaction).execute(() -> repository.findArchived());
+        assertThat(incidents.size(), equalTo(1));
+        Incident found = incidents.get(0);
+        assertThat(found.getId(), equalTo(incident1.getId()));
+        assertThat(found.getIncidentId(), equalTo(incident1.getIncidentId()));
+        assertThat(found.getVictimName(), equalTo(incident1.getVictimName()));
+        assertThat(found.getVictimPhoneNumber(), equalTo(incident1.getVictimPhoneNumber()));
+        assertThat(found.getLatitude(), equalTo(incident1.getLatitude()));
+        assertThat(found.getLongitude(), equalTo(incident1.getLongitude()));
+        assertThat(found.getNumberOfPeople(), equalTo(incident1.getNumberOfPeople()));
+        assertThat(found.isMedicalNeeded(), equalTo(incident1.isMedicalNeeded()));
+        assertThat(found.getReportedTime(), equalTo(incident1.getReportedTime()));
+        assertThat(found.getStatus(), equalTo(incident1.getStatus()));
+
+        Incident byId = new TransactionTemplate(transaction).execute(() -> repository.findArchivedByIncidentId("incident1"));
+        assertThat(byId, notNullValue());
+        List<Incident> byStatus = new TransactionTemplate(transaction).execute(() -> repository.findArchivedByStatus("rescued"));
+        assertThat(byStatus.size(), equalTo(1));
+        List<Incident> byName = new TransactionTemplate(transaction).execute(() -> repository.findArchivedByName("%doe i"));
+        assertThat(byName.size(), equalTo(1));
+        Incident notArchived = new TransactionTemplate(transaction).execute(() -> repository.findArchivedByIncidentId("incident3"));
+        assertThat(notArchived, nullValue());
+    }
+
+    /**
+     *  Test description:
+     *
+     *    When:
+     *      The query selecting the Incidents to archive is built
+     *
+     *    Then:
+     *      It locks the selected rows and skips the rows locked by another transaction
+     *
+     */
+    @Test
+    void testArchivableRowsAreLockedSkippingLocked() {
+        Object[] lock = new TransactionTemplate(transaction).execute(() -> {
+            TypedQuery<Long> query = repository.archivable(Arrays.asList("RESCUED", "CANCELLED"), Instant.now(), 10);
+            query.getResultList();
+            return new Object[]{query.getLockMode(), query.getHints().get(AvailableSettings.JPA_LOCK_TIMEOUT)};
+        });
+
+        assertThat(lock, notNullValue());
+        assertThat(lock[0], equalTo(LockModeType.PESSIMISTIC_WRITE));
+        assertThat(lock[1], equalTo(LockOptions.SKIP_LOCKED));
+        assertThat(new PostgreSQL10Dialect().getForUpdateSkipLockedString(), containsString("skip locked"));
+    }
+
+    /**
+     *  Test description:
+     *
+     *    When:
+     *      There are more archivable Incident records in the database than the given limit
+     *      A call is made to `archive`
+     *
+     *    Then:
+     *      Only `limit` Incidents are archived
+     *
+     */
+    @Test
+    void testArchiveLimit() {
+        Instant old = Instant.now().minusSeconds(3600);
+        List<Incident> incidents = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Incident incident = new Incident();
+            incident.setIncidentId("incident" + i);
+            incident.setLatitude("30.12345");
+            incident.setLongitude("-70.98765");
+            incident.setNumberOfPeople(3);
+            incident.setMedicalNeeded(true);
+            incident.setVictimName("John Doe");
+            incident.setVictimPhoneNumber("(111) 456-78990");
+            incident.setReportedTime(old);
+            incident.setStatus("RESCUED");
+            incidents.add(incident);
+        }
+        createIncidents(incidents);
+
+        Integer archived = new TransactionTemplate(transaction).execute(() -> repository.archive(Arrays.asList("RESCUED", "CANCELLED"), Instant.now(), 3));
+        assertThat(archived, equalTo(3));
+        assertThat(getAllIncidents().size(), equalTo(2));
+    }
+
     @Transactional
     List<?> getAllIncidents() {
         return entityManager.createQuery("SELECT i FROM Incident i").getResultList();
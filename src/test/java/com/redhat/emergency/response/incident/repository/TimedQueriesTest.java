@@ -0,0 +1,41 @@
+package com.redhat.emergency.response.incident.repository;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.Collections;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class TimedQueriesTest {
+
+    @Inject
+    EntityManager entityManager;
+
+    @Test
+    void testDescribe() {
+        Query query = entityManager.createNamedQuery("Incident.reportedBefore").setParameter("after", 10L);
+        assertThat(TimedQueries.describe("Incident.reportedBefore", query, 812, "3 rows", true),
+                equalTo("Slow query Incident.reportedBefore: 812 ms, 3 rows, parameters {after=10, before=<unbound>}"));
+
+        query = entityManager.createNamedQuery("Incident.deleteByIds").setParameter("ids", Collections.nCopies(100, 1L));
+        assertThat(TimedQueries.describe("Incident.deleteByIds", query, 1000, "failed", true),
+                equalTo("Slow query Incident.deleteByIds: 1000 ms, failed, parameters {ids=[" + String.join(", ", Collections.nCopies(100, "1")).substring(0, 99) + "...}"));
+    }
+
+    @Test
+    void testDescribeWithoutValues() {
+        Query query = entityManager.createNamedQuery("Incident.viewByName").setParameter("pattern", "%john doe%");
+        assertThat(TimedQueries.describe("Incident.viewByName", query, 812, "3 rows", false),
+                equalTo("Slow query Incident.viewByName: 812 ms, 3 rows, parameters {pattern=<String>}"));
+
+        query = entityManager.createNamedQuery("Incident.deleteByIds").setParameter("ids", Collections.nCopies(100, 1L));
+        assertThat(TimedQueries.describe("Incident.deleteByIds", query, 1000, "failed", false),
+                equalTo("Slow query Incident.deleteByIds: 1000 ms, failed, parameters {ids=<100 values>}"));
+    }
+}
@@ -0,0 +1,82 @@
+package com.redhat.emergency.response.incident.rest;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class IncidentRequestLimiterTest {
+
+    @Test
+    void testRequestsOverTheLimitAreShed() {
+        IncidentRequestLimiter.Limit limit = new IncidentRequestLimiter.Limit(4, 2, 100, 2.0, 0.2);
+
+        List<IncidentRequestLimiter.Permit> permits = acquire(limit, 4);
+        assertThat(limit.tryAcquire(), nullValue());
+        assertThat(limit.inFlight(), equalTo(4));
+
+        permits.get(0).onIgnore();
+        assertThat(limit.inFlight(), equalTo(3));
+        assertThat(limit.limit(), equalTo(4));
+        assertThat(limit.tryAcquire(), notNullValue());
+    }
+
+    @Test
+    void testLimitGrowsWhileLatencyIsStable() {
+        IncidentRequestLimiter.Limit limit = new IncidentRequestLimiter.Limit(4, 2, 100, 2.0, 0.2);
+
+        for (int i = 0; i < 50; i++) {
+            acquire(limit, limit.limit()).forEach(permit -> permit.onSuccess(TimeUnit.MILLISECONDS.toNanos(10)));
+        }
+
+        assertThat(limit.limit(), greaterThan(20));
+    }
+
+    @Test
+    void testLimitShrinksWhenLatencyRises() {
+        IncidentRequestLimiter.Limit limit = new IncidentRequestLimiter.Limit(50, 2, 100, 2.0, 0.2);
+        acquire(limit, 50).forEach(permit -> permit.onSuccess(TimeUnit.MILLISECONDS.toNanos(10)));
+        int before = limit.limit();
+
+        acquire(limit, limit.limit()).forEach(permit -> permit.onSuccess(TimeUnit.MILLISECONDS.toNanos(200)));
+
+        assertThat(limit.limit(), lessThan(before / 2));
+    }
+
+    @Test
+    void testLimitIsCutOnDrops() {
+        IncidentRequestLimiter.Limit limit = new IncidentRequestLimiter.Limit(10, 2, 100, 2.0, 0.2);
+
+        acquire(limit, 10).forEach(IncidentRequestLimiter.Permit::onDropped);
+
+        assertThat(limit.limit(), equalTo(3));
+        assertThat(limit.inFlight(), equalTo(0));
+    }
+
+    @Test
+    void testIdleLimitDoesNotGrow() {
+        IncidentRequestLimiter.Limit limit = new IncidentRequestLimiter.Limit(10, 2, 100, 2.0, 0.2);
+
+        for (int i = 0; i < 50; i++) {
+            limit.tryAcquire().onSuccess(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+
+        assertThat(limit.limit(), equalTo(10));
+    }
+
+    private List<IncidentRequestLimiter.Permit> acquire(IncidentRequestLimiter.Limit limit, int count) {
+        List<IncidentRequestLimiter.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            permits.add(limit.tryAcquire());
+        }
+        return permits;
+    }
+}
@@ -3,15 +3,28 @@ package com.redhat.emergency.response.incident.rest;
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.MockitoAnnotations.openMocks;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.persistence.QueryTimeoutException;
 
 import com.redhat.emergency.response.incident.service.EventBusConsumer;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler.Bulkhead;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler.Priority;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
 import io.restassured.http.ContentType;
@@ -31,6 +44,12 @@ public class IncidentsResourceTest {
     @InjectMock
     EventBusConsumer eventBusConsumer;
 
+    @Inject
+    IncidentPriorityScheduler scheduler;
+
+    @Inject
+    IncidentRequestLimiter limiter;
+
     @Captor
     ArgumentCaptor<Message<JsonObject>> messageCaptor;
 
@@ -42,19 +61,105 @@ public class IncidentsResourceTest {
     @Test
     void testReset() {
 
+        JsonObject job = new JsonObject().put("jobId", "job1").put("status", "RUNNING").put("mode", "chunked").put("deleted", 0);
+
         doAnswer(invocation -> {
             Message<JsonObject> msg = invocation.getArgument(0);
-            msg.replyAndForget(new JsonObject());
+            msg.replyAndForget(new JsonObject().put("job", job));
             return null;
         }).when(eventBusConsumer).consume(any(Message.class));
 
-        given().when().post("/incidents/reset")
-                .then().assertThat().statusCode(200).body(equalTo(""));
+        String body = given().when().post("/incidents/reset")
+                .then().assertThat().statusCode(202).contentType(ContentType.JSON)
+                .header("Location", CoreMatchers.endsWith("/incidents/reset/job1")).extract().asString();
+        assertThat(new JsonObject(body), equalTo(job));
         verify(eventBusConsumer).consume(messageCaptor.capture());
         assertThat(messageCaptor.getValue().headers().get("action"), equalTo("reset"));
         assertThat(messageCaptor.getValue().body().isEmpty(), equalTo(true));
     }
 
+    @Test
+    void testResetRejected() throws InterruptedException {
+
+        // the admin bulkhead has a single thread and a queue of 1 in the tests
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        scheduler.execute(Bulkhead.ADMIN, Priority.NORMAL, () -> {
+            try {
+                blocked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        scheduler.execute(Bulkhead.ADMIN, Priority.NORMAL, done::countDown);
+
+        given().when().post("/incidents/reset")
+                .then().assertThat().statusCode(503).header("Retry-After", "1");
+        verify(eventBusConsumer, never()).consume(any(Message.class));
+
+        blocked.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS), equalTo(true));
+    }
+
+    @Test
+    void testCreateIncidentOverLimit() {
+
+        List<IncidentRequestLimiter.Permit> permits = new ArrayList<>();
+        IncidentRequestLimiter.Permit permit;
+        while ((permit = limiter.tryAcquire(IncidentRequestLimiter.Kind.WRITE)) != null) {
+            permits.add(permit);
+        }
+
+        try {
+            given().when().header(new Header("Content-Type", "application/json")).body("{}").post("/incidents")
+                    .then().assertThat().statusCode(503).header("Retry-After", "1");
+            verify(eventBusConsumer, never()).consume(any(Message.class));
+        } finally {
+            permits.forEach(IncidentRequestLimiter.Permit::onIgnore);
+        }
+    }
+
+    @Test
+    void testIncidentsQueryTimeout() {
+
+        doThrow(new QueryTimeoutException("Query timed out")).when(eventBusConsumer).consume(any(Message.class));
+
+        given().when().get("/incidents").then().assertThat().statusCode(504);
+    }
+
+    @Test
+    void testResetStatus() {
+
+        JsonObject job = new JsonObject().put("jobId", "job1").put("status", "COMPLETED").put("mode", "chunked").put("deleted", 10);
+
+        doAnswer(invocation -> {
+            Message<JsonObject> msg = invocation.getArgument(0);
+            msg.replyAndForget(new JsonObject().put("job", job));
+            return null;
+        }).when(eventBusConsumer).consume(any(Message.class));
+
+        String body = given().when().get("/incidents/reset/job1")
+                .then().assertThat().statusCode(200).contentType(ContentType.JSON).extract().asString();
+        assertThat(new JsonObject(body), equalTo(job));
+        verify(eventBusConsumer).consume(messageCaptor.capture());
+        assertThat(messageCaptor.getValue().headers().get("action"), equalTo("resetStatus"));
+        assertThat(messageCaptor.getValue().body().getString("jobId"), equalTo("job1"));
+    }
+
+    @Test
+    void testResetStatusNotFound() {
+
+        doAnswer(invocation -> {
+            Message<JsonObject> msg = invocation.getArgument(0);
+            msg.replyAndForget(new JsonObject());
+            return null;
+        }).when(eventBusConsumer).consume(any(Message.class));
+
+        given().when().get("/incidents/reset/job1")
+                .then().assertThat().statusCode(404).body(equalTo(""));
+    }
+
     @Test
     void testIncidentById() {
 
@@ -74,6 +179,7 @@ public class IncidentsResourceTest {
             return null;
         }).when(eventBusConsumer).consume(any(Message.class));
 
+        long now = System.currentTimeMillis();
         String body = given().when().get("/incidents/incident/incident1")
                 .then().assertThat().statusCode(200).contentType(ContentType.JSON).extract().asString();
         JsonObject response = new JsonObject(body);
@@ -81,6 +187,11 @@ public class IncidentsResourceTest {
 
         verify(eventBusConsumer).consume(messageCaptor.capture());
         assertThat(messageCaptor.getValue().headers().get("action"), equalTo("incidentById"));
+        assertThat(messageCaptor.getValue().headers().get("requestId"), notNullValue());
+        // the incidentById timeout is 2 seconds in the tests
+        long deadline = Long.parseLong(messageCaptor.getValue().headers().get("deadline"));
+        assertThat(deadline, greaterThan(now));
+        assertThat(deadline, lessThanOrEqualTo(System.currentTimeMillis() + 2000));
         JsonObject payload = messageCaptor.getValue().body();
         assertThat(payload, notNullValue());
         assertThat(payload.getString("incidentId"), equalTo("incident1"));
@@ -137,6 +248,25 @@ public class IncidentsResourceTest {
         assertThat(payload.isEmpty(), equalTo(true));
     }
 
+    @Test
+    void testIncidentsIncludeArchived() {
+
+        doAnswer(invocation -> {
+            Message<JsonObject> msg = invocation.getArgument(0);
+            msg.replyAndForget(new JsonObject().put("incidents", new JsonArray()));
+            return null;
+        }).when(eventBusConsumer).consume(any(Message.class));
+
+        given().when().get("/incidents?includeArchived=true")
+                .then().assertThat().statusCode(200).contentType(ContentType.JSON);
+
+        verify(eventBusConsumer).consume(messageCaptor.capture());
+        assertThat(messageCaptor.getValue().headers().get("action"), equalTo("incidents"));
+        JsonObject payload = messageCaptor.getValue().body();
+        assertThat(payload, notNullValue());
+        assertThat(payload.getBoolean("includeArchived"), equalTo(true));
+    }
+
     @Test
     void testIncidentsEmpty() {
 
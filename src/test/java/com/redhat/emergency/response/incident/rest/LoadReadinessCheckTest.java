@@ -0,0 +1,80 @@
+package com.redhat.emergency.response.incident.rest;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler.Bulkhead;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler.Priority;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class LoadReadinessCheckTest {
+
+    @Inject
+    IncidentPriorityScheduler scheduler;
+
+    /**
+     * Only the Load check is asserted: the Kafka connector of the tests has no broker and reports down.
+     */
+    @Test
+    void testReadinessFollowsLoad() throws InterruptedException {
+        given().when().get("/health/ready").then().assertThat()
+                .body("checks.find { it.name == 'Load' }.status", equalTo("UP"))
+                .body("checks.find { it.name == 'Load' }.data.eventBacklog", equalTo("0"));
+
+        // a saturated admin bulkhead, of one thread and one queue slot in the tests, leaves the pod ready
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            running.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        scheduler.execute(Bulkhead.ADMIN, Priority.NORMAL, blocking);
+        assertThat(running.await(5, TimeUnit.SECONDS), equalTo(true));
+        scheduler.execute(Bulkhead.ADMIN, Priority.NORMAL, blocking);
+        try {
+            assertThat(scheduler.saturation(Bulkhead.ADMIN), equalTo(1.0));
+            given().when().get("/health/ready").then().assertThat()
+                    .body("checks.find { it.name == 'Load' }.status", equalTo("UP"))
+                    .body("checks.find { it.name == 'Load' }.data.containsKey('adminSaturation')", equalTo(false));
+
+            // the write bulkhead of the tests has one thread and the default 100 queue slots
+            CountDownLatch writing = new CountDownLatch(1);
+            scheduler.execute(Bulkhead.WRITE, Priority.NORMAL, () -> {
+                writing.countDown();
+                blocking.run();
+            });
+            assertThat(writing.await(5, TimeUnit.SECONDS), equalTo(true));
+            for (int i = 0; i < 100; i++) {
+                scheduler.execute(Bulkhead.WRITE, Priority.NORMAL, () -> { });
+            }
+            given().when().get("/health/ready").then().assertThat().statusCode(503)
+                    .body("checks.find { it.name == 'Load' }.status", equalTo("DOWN"))
+                    .body("checks.find { it.name == 'Load' }.data.writeSaturation", equalTo("1.0"))
+                    .body("checks.find { it.name == 'Load' }.data.pointReadSaturation", equalTo("0.0"));
+            given().when().get("/health/live").then().assertThat()
+                    .body("checks.find { it.name == 'Health check' }.status", equalTo("UP"));
+        } finally {
+            release.countDown();
+        }
+
+        long timeout = System.currentTimeMillis() + 5000;
+        while ((scheduler.saturation(Bulkhead.WRITE) > 0 || scheduler.saturation(Bulkhead.ADMIN) > 0)
+                && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        given().when().get("/health/ready").then().assertThat()
+                .body("checks.find { it.name == 'Load' }.status", equalTo("UP"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.redhat.emergency.response.incident.rest;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.time.Duration;
+import java.util.Arrays;
+import javax.inject.Inject;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.restassured.http.ContentType;
+import io.vertx.core.json.JsonObject;
+import org.hamcrest.CoreMatchers;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class ProfilingResourceTest {
+
+    @Inject
+    JfrProfiler profiler;
+
+    @Test
+    void testRecording() throws Exception {
+        String body = given().when().queryParam("duration", "PT5S").post("/admin/profiling/recordings")
+                .then().assertThat().statusCode(202).contentType(ContentType.JSON)
+                .header("Location", CoreMatchers.containsString("/admin/profiling/recordings/")).extract().asString();
+        JsonObject status = new JsonObject(body);
+        long id = status.getLong("id");
+        assertThat(status.getString("state"), equalTo("running"));
+        assertThat(status.getString("duration"), equalTo("PT5S"));
+
+        given().when().queryParam("duration", "PT1S").post("/admin/profiling/recordings")
+                .then().assertThat().statusCode(409);
+        given().when().get("/admin/profiling/recordings/" + id + "/file")
+                .then().assertThat().statusCode(409);
+
+        long timeout = System.currentTimeMillis() + 15000;
+        while (!"done".equals(state(id)) && System.currentTimeMillis() < timeout) {
+            Thread.sleep(100);
+        }
+        assertThat(state(id), equalTo("done"));
+
+        byte[] file = given().when().get("/admin/profiling/recordings/" + id + "/file")
+                .then().assertThat().statusCode(200).contentType("application/octet-stream")
+                .header("Content-Disposition", CoreMatchers.containsString("incident-service-" + id + ".jfr"))
+                .extract().asByteArray();
+        assertThat(new String(Arrays.copyOf(file, 3), StandardCharsets.US_ASCII), equalTo("FLR"));
+
+        JsonObject summary = new JsonObject(given().when().get("/admin/profiling/recordings/" + id + "/summary")
+                .then().assertThat().statusCode(200).contentType(ContentType.JSON).extract().asString());
+        assertThat(summary.getLong("id"), equalTo(id));
+        assertThat(summary.getLong("executionSamples"), greaterThan(0L));
+        assertThat(summary.getJsonArray("hotMethods"), notNullValue());
+        assertThat(summary.getJsonArray("allocationSites"), notNullValue());
+
+        // the next recording deletes the file: it is no longer served
+        long next = profiler.start(Duration.ofSeconds(1));
+        assertThat(next, equalTo(id + 1));
+        assertThrows(NoSuchFileException.class, () -> profiler.copy(id, OutputStream.nullOutputStream()));
+        given().when().get("/admin/profiling/recordings/" + id + "/summary")
+                .then().assertThat().statusCode(404);
+    }
+
+    @Test
+    void testInvalidDuration() {
+        given().when().queryParam("duration", "PT1M").post("/admin/profiling/recordings")
+                .then().assertThat().statusCode(400);
+        given().when().queryParam("duration", "one second").post("/admin/profiling/recordings")
+                .then().assertThat().statusCode(400);
+    }
+
+    @Test
+    void testUnknownRecording() {
+        given().when().get("/admin/profiling/recordings/1000/summary")
+                .then().assertThat().statusCode(404);
+    }
+
+    @Test
+    void testDisabled() {
+        ProfilingResource resource = new ProfilingResource();
+        assertThat(resource.start("PT1S").getStatus(), equalTo(404));
+        assertThat(resource.status(1).getStatus(), equalTo(404));
+    }
+
+    private static String state(long id) {
+        return new JsonObject(given().when().get("/admin/profiling/recordings/" + id)
+                .then().assertThat().statusCode(200).extract().asString()).getString("state");
+    }
+}
@@ -5,6 +5,7 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.isA;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -20,6 +21,7 @@ import javax.inject.Inject;
 
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
+import io.smallrye.reactive.messaging.ce.OutgoingCloudEventMetadata;
 import io.smallrye.reactive.messaging.ce.impl.DefaultOutgoingCloudEventMetadata;
 import io.smallrye.reactive.messaging.connectors.InMemoryConnector;
 import io.smallrye.reactive.messaging.connectors.InMemorySink;
@@ -42,6 +44,9 @@ public class EventBusConsumerTest {
     @InjectMock
     IncidentService incidentService;
 
+    @InjectMock
+    IncidentResetJobs resetJobs;
+
     @Inject
     EventBusConsumer eventBusConsumer;
 
@@ -185,6 +190,69 @@ public class EventBusConsumerTest {
         assertThat(body.isEmpty(), equalTo(true));
     }
 
+    @Test
+    void testIncidentsIncludeArchived() {
+
+        JsonObject incident1 = new JsonObject().put("id", "incident1")
+                .put("lat", "31.12345")
+                .put("lon", "-71.98765")
+                .put("medicalNeeded", true)
+                .put("numberOfPeople", 4)
+                .put("victimName", "John Doe")
+                .put("victimPhoneNumber", "(211) 456-78990")
+                .put("timestamp", Instant.now().toEpochMilli())
+                .put("status", "REPORTED");
+
+        JsonObject incident2 = new JsonObject().put("id", "incident2")
+                .put("lat", "32.12345")
+                .put("lon", "-72.98765")
+                .put("medicalNeeded", true)
+                .put("numberOfPeople", 5)
+                .put("victimName", "John Foo")
+                .put("victimPhoneNumber", "(111) 456-78990")
+                .put("timestamp", Instant.now().toEpochMilli())
+                .put("status", "RESCUED");
+
+        when(incidentService.incidents()).thenReturn(new JsonArray().add(incident1));
+        when(incidentService.archivedIncidents()).thenReturn(new JsonArray().add(incident2));
+
+        Message<JsonObject> message = buildMessage(new JsonObject().put("includeArchived", true), Collections.singletonMap("action", "incidents"));
+        eventBusConsumer.consume(message);
+
+        assertThat(messageReplyCalled, equalTo(true));
+        JsonObject body = (JsonObject) messageReplyBody;
+        JsonArray reply = body.getJsonArray("incidents");
+        assertThat(reply, equalTo(new JsonArray(Arrays.asList(incident1, incident2))));
+        verify(incidentService).incidents();
+        verify(incidentService).archivedIncidents();
+    }
+
+    @Test
+    void testIncidentByIdArchived() {
+
+        JsonObject incident1 = new JsonObject().put("id", "incident1")
+                .put("lat", "31.12345")
+                .put("lon", "-71.98765")
+                .put("medicalNeeded", true)
+                .put("numberOfPeople", 4)
+                .put("victimName", "John Doe")
+                .put("victimPhoneNumber", "(211) 456-78990")
+                .put("timestamp", Instant.now().toEpochMilli())
+                .put("status", "RESCUED");
+
+        when(incidentService.incidentByIncidentId("incident1")).thenReturn(null);
+        when(incidentService.archivedIncidentByIncidentId("incident1")).thenReturn(incident1);
+
+        Message<JsonObject> message = buildMessage(new JsonObject().put("incidentId", "incident1").put("includeArchived", true),
+                Collections.singletonMap("action", "incidentById"));
+        eventBusConsumer.consume(message);
+
+        assertThat(messageReplyCalled, equalTo(true));
+        JsonObject body = (JsonObject) messageReplyBody;
+        assertThat(body.getJsonObject("incident"), equalTo(incident1));
+        verify(incidentService).archivedIncidentByIncidentId("incident1");
+    }
+
     @Test
     void testIncidentsByStatus() {
 
@@ -305,6 +373,22 @@ public class EventBusConsumerTest {
         verify(incidentService).incidentsByVictimName("John%");
     }
 
+    @Test
+    void testReportedEventsHaveDistinctIds() {
+        JsonObject incident = new JsonObject().put("id", "incident1").put("status", "REPORTED");
+        when(incidentService.create(Mockito.any(JsonObject.class))).thenReturn(incident);
+        InMemorySink<String> results = connector.sink("incident-event-1");
+
+        eventBusConsumer.consume(buildMessage(new JsonObject(), Collections.singletonMap("action", "createIncident")));
+        eventBusConsumer.consume(buildMessage(new JsonObject(), Collections.singletonMap("action", "createIncident")));
+
+        assertThat(results.received().size(), equalTo(2));
+        String first = cloudEventId(results.received().get(0));
+        String second = cloudEventId(results.received().get(1));
+        assertThat(first, notNullValue());
+        assertThat(second, not(equalTo(first)));
+    }
+
     @Test
     void testCreateIncident() {
 
@@ -377,6 +461,9 @@ public class EventBusConsumerTest {
 
     @Test
     void testReset() {
+        JsonObject job = new JsonObject().put("jobId", "job1").put("status", "RUNNING");
+        when(resetJobs.start()).thenReturn(job);
+
         Message<JsonObject> message = buildMessage(new JsonObject(), Collections.singletonMap("action", "reset"));
         eventBusConsumer.consume(message);
 
@@ -384,11 +471,36 @@ public class EventBusConsumerTest {
         assertThat(messageReplyBody, notNullValue());
         assertThat(messageReplyBody, isA(JsonObject.class));
         JsonObject body = (JsonObject) messageReplyBody;
-        assertThat(body.isEmpty(), equalTo(true));
-        verify(incidentService).reset();
+        assertThat(body.getJsonObject("job"), equalTo(job));
+        verify(resetJobs).start();
 
     }
 
+    @Test
+    void testResetStatus() {
+        JsonObject job = new JsonObject().put("jobId", "job1").put("status", "COMPLETED");
+        when(resetJobs.status("job1")).thenReturn(job);
+
+        Message<JsonObject> message = buildMessage(new JsonObject().put("jobId", "job1"), Collections.singletonMap("action", "resetStatus"));
+        eventBusConsumer.consume(message);
+
+        assertThat(messageReplyCalled, equalTo(true));
+        JsonObject body = (JsonObject) messageReplyBody;
+        assertThat(body.getJsonObject("job"), equalTo(job));
+    }
+
+    @Test
+    void testResetStatusNotFound() {
+        when(resetJobs.status("job1")).thenReturn(null);
+
+        Message<JsonObject> message = buildMessage(new JsonObject().put("jobId", "job1"), Collections.singletonMap("action", "resetStatus"));
+        eventBusConsumer.consume(message);
+
+        assertThat(messageReplyCalled, equalTo(true));
+        JsonObject body = (JsonObject) messageReplyBody;
+        assertThat(body.isEmpty(), equalTo(true));
+    }
+
     private Message<JsonObject> buildMessage(JsonObject body, Map<String, String> headers) {
         MessageImpl<JsonObject, JsonObject> message = new MessageImpl<>(body);
         headers.forEach((key, value) -> message.headers().add(key, value));
@@ -415,5 +527,7 @@ public class EventBusConsumerTest {
         }
     }
 
-
+    private static String cloudEventId(org.eclipse.microprofile.reactive.messaging.Message<String> message) {
+        return message.getMetadata(OutgoingCloudEventMetadata.class).map(OutgoingCloudEventMetadata::getId).orElse(null);
+    }
 }
@@ -0,0 +1,78 @@
+package com.redhat.emergency.response.incident.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.time.Duration;
+import java.time.Instant;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+import com.redhat.emergency.response.incident.entity.Incident;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class IncidentArchiverTest {
+
+    @Inject
+    IncidentArchiver archiver;
+
+    @Inject
+    EntityManager entityManager;
+
+    @BeforeEach
+    @Transactional
+    void clearTables() {
+        entityManager.createQuery("DELETE FROM Incident").executeUpdate();
+        entityManager.createNativeQuery("DELETE FROM archived_incident").executeUpdate();
+    }
+
+    @Test
+    void testArchive() {
+        Instant old = Instant.now().minus(Duration.ofDays(2));
+        createIncidents(old, "RESCUED", 3);
+        createIncidents(old, "CANCELLED", 2);
+        createIncidents(old, "ASSIGNED", 1);
+        createIncidents(Instant.now(), "RESCUED", 1);
+
+        // chunk size is 2 in the tests: the 5 archivable incidents take 3 chunks
+        int archived = archiver.archive();
+
+        assertThat(archived, equalTo(5));
+        assertThat(count("SELECT COUNT(*) FROM reported_incident"), equalTo(2L));
+        assertThat(count("SELECT COUNT(*) FROM archived_incident"), equalTo(5L));
+    }
+
+    @Test
+    void testArchiveNothingToArchive() {
+        createIncidents(Instant.now(), "RESCUED", 2);
+
+        assertThat(archiver.archive(), equalTo(0));
+        assertThat(count("SELECT COUNT(*) FROM archived_incident"), equalTo(0L));
+    }
+
+    @Transactional
+    void createIncidents(Instant reportedTime, String status, int count) {
+        for (int i = 0; i < count; i++) {
+            Incident incident = new Incident();
+            incident.setIncidentId(status + "-" + reportedTime.toEpochMilli() + "-" + i);
+            incident.setLatitude("30.12345");
+            incident.setLongitude("-70.98765");
+            incident.setNumberOfPeople(3);
+            incident.setMedicalNeeded(true);
+            incident.setVictimName("John Doe");
+            incident.setVictimPhoneNumber("(111) 456-78990");
+            incident.setReportedTime(reportedTime);
+            incident.setStatus(status);
+            entityManager.persist(incident);
+        }
+    }
+
+    @Transactional
+    long count(String sql) {
+        return ((Number) entityManager.createNativeQuery(sql).getSingleResult()).longValue();
+    }
+}
@@ -0,0 +1,103 @@
+package com.redhat.emergency.response.incident.service;
+
+import static com.redhat.emergency.response.incident.entity.IncidentFixtures.incident;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.UserTransaction;
+
+import com.redhat.emergency.response.incident.repository.IncidentRepository;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compares time-ordered and random incident ids: generation throughput from parallel threads, and insert
+ * throughput on the <code>reported_incident</code> table and its unique index on <code>incident_id</code>.
+ * Run with <code>mvn test -Pbenchmark</code>.
+ */
+@QuarkusTest
+@Tag("benchmark")
+public class IncidentIdBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentIdBenchmarkTest.class);
+
+    private static final int THREADS = 8;
+
+    private static final int IDS_PER_THREAD = 1_000_000;
+
+    private static final int INSERTS = 20_000;
+
+    private static final int BATCH = 500;
+
+    @Inject
+    IncidentRepository repository;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    UserTransaction transaction;
+
+    @Test
+    void benchmarkGeneration() throws Exception {
+        for (int round = 0; round < 3; round++) {
+            log.info(String.format("generation, %d threads: time-ordered %.0f ids/s, random %.0f ids/s", THREADS,
+                    generate(new TimeOrderedIncidentIdGenerator()), generate(IncidentIdGenerator.RANDOM)));
+        }
+    }
+
+    @Test
+    void benchmarkInsert() throws Exception {
+        for (int round = 0; round < 3; round++) {
+            log.info(String.format("insert %d rows: time-ordered %.0f rows/s, random %.0f rows/s", INSERTS,
+                    insert(new TimeOrderedIncidentIdGenerator()), insert(IncidentIdGenerator.RANDOM)));
+        }
+    }
+
+    private double generate(IncidentIdGenerator generator) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                int hash = 0;
+                for (int i = 0; i < IDS_PER_THREAD; i++) {
+                    hash += generator.nextId().hashCode();
+                }
+                return hash;
+            }));
+        }
+        for (Future<Integer> future : futures) {
+            future.get(5, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+        return THREADS * (double) IDS_PER_THREAD / (elapsed / 1_000_000_000.0);
+    }
+
+    private double insert(IncidentIdGenerator generator) throws Exception {
+        transaction.begin();
+        entityManager.createQuery("DELETE FROM Incident").executeUpdate();
+        transaction.commit();
+        long start = System.nanoTime();
+        for (int i = 0; i < INSERTS; i += BATCH) {
+            transaction.begin();
+            for (int j = 0; j < BATCH; j++) {
+                repository.create(incident(generator.nextId()));
+            }
+            transaction.commit();
+            entityManager.clear();
+        }
+        long elapsed = System.nanoTime() - start;
+        return INSERTS / (elapsed / 1_000_000_000.0);
+    }
+}
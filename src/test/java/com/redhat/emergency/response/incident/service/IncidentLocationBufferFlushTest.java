@@ -0,0 +1,80 @@
+package com.redhat.emergency.response.incident.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.util.HashMap;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+import com.redhat.emergency.response.incident.repository.IncidentRepository;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The periodic flush of the write-behind buffer, outside any transaction or request.
+ */
+@QuarkusTest
+@TestProfile(IncidentLocationBufferFlushTest.PeriodicFlushProfile.class)
+public class IncidentLocationBufferFlushTest {
+
+    @Inject
+    IncidentService incidentService;
+
+    @Inject
+    IncidentLocationBuffer locationBuffer;
+
+    @Inject
+    IncidentRepository repository;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Test
+    void testPeriodicFlush() throws Exception {
+        String incidentId = incidentService.create(new JsonObject().put("lat", 30.12345).put("lon", -70.98765)
+                .put("numberOfPeople", 3).put("medicalNeeded", true)
+                .put("victimName", "John Doe").put("victimPhoneNumber", "(111) 456-78990")).getString("id");
+        // cached in the second-level cache
+        assertThat(cachedLatitude(incidentId), equalTo("30.12345"));
+
+        incidentService.updateIncident(new JsonObject().put("id", incidentId).put("lat", 31.5).put("lon", -71.5));
+
+        long timeout = System.currentTimeMillis() + 5000;
+        while (locationBuffer.get(incidentId) != null && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertThat(locationBuffer.get(incidentId), nullValue());
+        assertThat(rowLatitude(incidentId), equalTo("31.5"));
+        // evicted once flushed
+        assertThat(cachedLatitude(incidentId), equalTo("31.5"));
+    }
+
+    @Transactional
+    String cachedLatitude(String incidentId) {
+        return repository.findByIncidentId(incidentId).getLatitude();
+    }
+
+    @Transactional
+    String rowLatitude(String incidentId) {
+        return (String) entityManager.createNativeQuery("SELECT latitude FROM reported_incident WHERE incident_id = :id")
+                .setParameter("id", incidentId).getSingleResult();
+    }
+
+    public static class PeriodicFlushProfile implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            Map<String, String> config = new HashMap<>();
+            config.put("incident.location.write-behind.enabled", "true");
+            config.put("incident.location.write-behind.interval-ms", "100");
+            return config;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.redhat.emergency.response.incident.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.doReturn;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+import com.redhat.emergency.response.incident.entity.Incident;
+import com.redhat.emergency.response.incident.repository.IncidentReadRepository;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import io.quarkus.test.junit.mockito.InjectSpy;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+@TestProfile(IncidentLocationBufferTest.WriteBehindProfile.class)
+public class IncidentLocationBufferTest {
+
+    @Inject
+    IncidentService incidentService;
+
+    @Inject
+    IncidentLocationBuffer locationBuffer;
+
+    @Inject
+    EntityManager entityManager;
+
+    @InjectSpy
+    IncidentReadRepository readRepository;
+
+    private String incidentId;
+
+    @BeforeEach
+    void init() {
+        locationBuffer.flush();
+        clear();
+        incidentId = incidentService.create(new JsonObject().put("lat", 30.12345).put("lon", -70.98765)
+                .put("numberOfPeople", 3).put("medicalNeeded", true)
+                .put("victimName", "John Doe").put("victimPhoneNumber", "(111) 456-78990")).getString("id");
+    }
+
+    @Test
+    void testLocationUpdateIsBuffered() {
+        JsonObject updated = incidentService.updateIncident(new JsonObject().put("id", incidentId).put("lat", 31.5).put("lon", -71.5));
+
+        assertThat(updated.getDouble("lat"), equalTo(31.5));
+        assertThat(updated.getDouble("lon"), equalTo(-71.5));
+        assertThat(updated.getString("victimName"), equalTo("John Doe"));
+        assertThat(row().getString("latitude"), equalTo("30.12345"));
+        assertThat(row().getLong("version"), equalTo(0L));
+
+        JsonObject read = incidentService.incidentByIncidentId(incidentId);
+        assertThat(read.getDouble("lat"), equalTo(31.5));
+        assertThat(incidentService.incidents().getJsonObject(0).getDouble("lon"), equalTo(-71.5));
+
+        // a partial update keeps the buffered longitude
+        incidentService.updateIncident(new JsonObject().put("id", incidentId).put("lat", 32.5));
+
+        assertThat(locationBuffer.flush(), equalTo(1));
+        assertThat(row().getString("latitude"), equalTo("32.5"));
+        assertThat(row().getString("longitude"), equalTo("-71.5"));
+        assertThat(row().getLong("version"), equalTo(1L));
+        assertThat(locationBuffer.get(incidentId), nullValue());
+        assertThat(incidentService.incidentByIncidentId(incidentId).getDouble("lat"), equalTo(32.5));
+    }
+
+    @Test
+    void testStatusUpdateIsSynchronous() {
+        incidentService.updateIncident(new JsonObject().put("id", incidentId).put("lat", 31.5).put("lon", -71.5));
+        incidentService.updateIncident(new JsonObject().put("id", incidentId).put("lat", 33.5).put("lon", -73.5).put("status", "ASSIGNED"));
+
+        assertThat(locationBuffer.get(incidentId), nullValue());
+        assertThat(row().getString("incident_status"), equalTo("ASSIGNED"));
+        assertThat(row().getString("latitude"), equalTo("33.5"));
+        assertThat(locationBuffer.flush(), equalTo(0));
+    }
+
+    @Test
+    void testUnknownIncident() {
+        assertThat(incidentService.updateIncident(new JsonObject().put("id", "unknown").put("lat", 31.5)), nullValue());
+        assertThat(locationBuffer.get("unknown"), nullValue());
+    }
+
+    @Test
+    void testReadAfterFlushWithLaggingReplica() throws Exception {
+        // the creation is no longer a recent write
+        Thread.sleep(300);
+        Incident stale = new Incident();
+        stale.setIncidentId(incidentId);
+        stale.setLatitude("30.12345");
+        stale.setLongitude("-70.98765");
+        stale.setReportedTime(Instant.now());
+        doReturn(stale).when(readRepository).findByIncidentId(incidentId);
+
+        incidentService.updateIncident(new JsonObject().put("id", incidentId).put("lat", 31.5).put("lon", -71.5));
+        assertThat(locationBuffer.flush(), equalTo(1));
+
+        JsonObject read = incidentService.incidentByIncidentId(incidentId);
+        assertThat(read.getDouble("lat"), equalTo(31.5));
+        assertThat(read.getDouble("lon"), equalTo(-71.5));
+    }
+
+    @Transactional
+    void clear() {
+        entityManager.createQuery("DELETE FROM Incident").executeUpdate();
+    }
+
+    @Transactional
+    JsonObject row() {
+        Object[] row = (Object[]) entityManager.createNativeQuery("SELECT latitude, longitude, version, incident_status FROM reported_incident WHERE incident_id = :id")
+                .setParameter("id", incidentId).getSingleResult();
+        return new JsonObject().put("latitude", row[0]).put("longitude", row[1])
+                .put("version", ((Number) row[2]).longValue()).put("incident_status", row[3]);
+    }
+
+    public static class WriteBehindProfile implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            Map<String, String> config = new HashMap<>();
+            config.put("incident.location.write-behind.enabled", "true");
+            // flushed by the tests only
+            config.put("incident.location.write-behind.interval-ms", "3600000");
+            config.put("incident.datasource.read.staleness-ms", "200");
+            return config;
+        }
+    }
+}
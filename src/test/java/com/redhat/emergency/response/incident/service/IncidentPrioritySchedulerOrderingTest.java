@@ -0,0 +1,76 @@
+package com.redhat.emergency.response.incident.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler.Bulkhead;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler.Priority;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.QuarkusTestProfile;
+import io.quarkus.test.junit.TestProfile;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The ordering of the queued work by priority alone: the maximum waits are far longer than any submission, so that
+ * no task ages past a more urgent one however slow the machine.
+ */
+@QuarkusTest
+@TestProfile(IncidentPrioritySchedulerOrderingTest.NoAgingProfile.class)
+public class IncidentPrioritySchedulerOrderingTest {
+
+    @Inject
+    IncidentPriorityScheduler scheduler;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Test
+    void testUrgentWorkIsServedFirst() throws InterruptedException {
+        long critical = meterRegistry.get("incident.priority.queue.wait").tag("priority", "critical").timer().count();
+        List<String> executed = new CopyOnWriteArrayList<>();
+        // the write bulkhead has a single thread in the tests: hold it until all the tasks are queued
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        scheduler.execute(Bulkhead.WRITE, Priority.NORMAL, () -> {
+            running.countDown();
+            try {
+                blocked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertThat(running.await(5, TimeUnit.SECONDS), equalTo(true));
+        scheduler.execute(Bulkhead.WRITE, Priority.NORMAL, () -> executed.add("normal"));
+        scheduler.execute(Bulkhead.WRITE, Priority.HIGH, () -> executed.add("high"));
+        scheduler.execute(Bulkhead.WRITE, Priority.CRITICAL, () -> executed.add("critical"));
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.execute(Bulkhead.WRITE, Priority.NORMAL, done::countDown);
+        blocked.countDown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(executed, contains("critical", "high", "normal"));
+        assertThat(meterRegistry.get("incident.priority.queue.wait").tag("priority", "critical").timer().count(), greaterThan(critical));
+    }
+
+    public static class NoAgingProfile implements QuarkusTestProfile {
+
+        @Override
+        public Map<String, String> getConfigOverrides() {
+            Map<String, String> config = new HashMap<>();
+            config.put("incident.priority.high.max-wait-ms", "600000");
+            config.put("incident.priority.normal.max-wait-ms", "1200000");
+            return config;
+        }
+    }
+}
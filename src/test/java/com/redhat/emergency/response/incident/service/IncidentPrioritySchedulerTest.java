@@ -0,0 +1,121 @@
+package com.redhat.emergency.response.incident.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler.Bulkhead;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler.Priority;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class IncidentPrioritySchedulerTest {
+
+    @Inject
+    IncidentPriorityScheduler scheduler;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Test
+    void testPriorityOf() {
+        assertThat(scheduler.priorityOf(new JsonObject().put("medicalNeeded", true).put("numberOfPeople", 3)), equalTo(Priority.CRITICAL));
+        assertThat(scheduler.priorityOf(new JsonObject().put("medicalNeeded", true).put("numberOfPeople", 1)), equalTo(Priority.HIGH));
+        assertThat(scheduler.priorityOf(new JsonObject().put("medicalNeeded", false).put("numberOfPeople", 12)), equalTo(Priority.HIGH));
+        assertThat(scheduler.priorityOf(new JsonObject().put("medicalNeeded", false).put("numberOfPeople", 2)), equalTo(Priority.NORMAL));
+        assertThat(scheduler.priorityOf(new JsonObject().put("id", "incident1").put("status", "ASSIGNED")), equalTo(Priority.NORMAL));
+        assertThat(scheduler.priorityOf(null), equalTo(Priority.NORMAL));
+    }
+
+    @Test
+    void testWaitingWorkIsNotStarved() throws InterruptedException {
+        List<String> executed = new CopyOnWriteArrayList<>();
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        scheduler.execute(Bulkhead.WRITE, Priority.NORMAL, () -> {
+            running.countDown();
+            await(blocked);
+        });
+        assertThat(running.await(5, TimeUnit.SECONDS), equalTo(true));
+        scheduler.execute(Bulkhead.WRITE, Priority.NORMAL, () -> executed.add("normal"));
+        // the normal max wait is 50 ms in the tests: past it, the normal task goes before new urgent ones
+        Thread.sleep(100);
+        scheduler.execute(Bulkhead.WRITE, Priority.CRITICAL, () -> executed.add("critical"));
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.execute(Bulkhead.WRITE, Priority.NORMAL, done::countDown);
+        blocked.countDown();
+
+        assertThat(done.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(executed, contains("normal", "critical"));
+    }
+
+    @Test
+    void testSaturatedBulkheadRejects() throws InterruptedException {
+        double rejected = meterRegistry.get("incident.bulkhead.rejected").tag("bulkhead", "admin").counter().count();
+        // the admin bulkhead has a single thread and a queue of 1 in the tests
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(1);
+        scheduler.execute(Bulkhead.ADMIN, Priority.NORMAL, () -> {
+            running.countDown();
+            await(blocked);
+        });
+        CountDownLatch done = new CountDownLatch(1);
+        scheduler.execute(Bulkhead.ADMIN, Priority.NORMAL, done::countDown);
+        assertThat(running.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(meterRegistry.get("incident.bulkhead.utilization").tag("bulkhead", "admin").gauge().value(), equalTo(1.0));
+
+        assertThrows(RejectedExecutionException.class, () -> scheduler.execute(Bulkhead.ADMIN, Priority.CRITICAL, () -> {}));
+        // the other bulkheads are not affected
+        CountDownLatch read = new CountDownLatch(1);
+        scheduler.execute(Bulkhead.POINT_READ, Priority.NORMAL, read::countDown);
+        assertThat(read.await(5, TimeUnit.SECONDS), equalTo(true));
+
+        blocked.countDown();
+        assertThat(done.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(meterRegistry.get("incident.bulkhead.rejected").tag("bulkhead", "admin").counter().count(), equalTo(rejected + 1));
+    }
+
+    @Test
+    void testConnectionPartition() throws InterruptedException {
+        // the list-read bulkhead has 10 threads and 2 connections in the tests
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch running = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            scheduler.execute(Bulkhead.LIST_READ, Priority.NORMAL, () -> {
+                running.countDown();
+                await(blocked);
+            });
+        }
+        assertThat(running.await(5, TimeUnit.SECONDS), equalTo(true));
+        CountDownLatch list = new CountDownLatch(1);
+        scheduler.execute(Bulkhead.LIST_READ, Priority.NORMAL, list::countDown);
+
+        // the point reads keep their own connections
+        CountDownLatch read = new CountDownLatch(1);
+        scheduler.execute(Bulkhead.POINT_READ, Priority.NORMAL, read::countDown);
+        assertThat(read.await(5, TimeUnit.SECONDS), equalTo(true));
+        assertThat(list.await(100, TimeUnit.MILLISECONDS), equalTo(false));
+
+        blocked.countDown();
+        assertThat(list.await(5, TimeUnit.SECONDS), equalTo(true));
+    }
+
+    private void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.redhat.emergency.response.incident.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import java.time.Instant;
+import java.util.Collections;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+import com.redhat.emergency.response.incident.entity.Incident;
+import com.redhat.emergency.response.incident.repository.IncidentRepository;
+import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class IncidentResetJobsTest {
+
+    @Inject
+    IncidentResetJobs resetJobs;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    IncidentRepository repository;
+
+    @BeforeEach
+    @Transactional
+    void init() {
+        entityManager.createQuery("DELETE FROM Incident").executeUpdate();
+        entityManager.createNativeQuery("DELETE FROM archived_incident").executeUpdate();
+        for (int i = 0; i < 25; i++) {
+            createIncident("incident" + i, Instant.now(), i < 5 ? "RESCUED" : "REPORTED");
+        }
+        repository.archive(Collections.singletonList("RESCUED"), Instant.now().plusSeconds(1), 10);
+    }
+
+    @Transactional
+    void createIncident(String incidentId, Instant reportedTime, String status) {
+        Incident incident = new Incident();
+        incident.setIncidentId(incidentId);
+        incident.setLatitude("30.12345");
+        incident.setLongitude("-70.98765");
+        incident.setNumberOfPeople(3);
+        incident.setMedicalNeeded(true);
+        incident.setVictimName("John Doe");
+        incident.setVictimPhoneNumber("(111) 456-78990");
+        incident.setReportedTime(reportedTime);
+        incident.setStatus(status);
+        entityManager.persist(incident);
+    }
+
+    @Test
+    void testChunkedReset() throws Exception {
+        JsonObject job = resetJobs.start();
+        assertThat(job.getString("jobId"), notNullValue());
+        assertThat(job.getString("mode"), equalTo("chunked"));
+
+        JsonObject done = awaitCompletion(job.getString("jobId"));
+
+        assertThat(done.getString("status"), equalTo("COMPLETED"));
+        assertThat(done.getLong("deleted"), equalTo(20L));
+        assertThat(done.getLong("archivedDeleted"), equalTo(5L));
+        assertThat(done.getLong("finished"), notNullValue());
+        assertThat(count(), equalTo(0L));
+        assertThat(archivedCount(), equalTo(0L));
+    }
+
+    @Test
+    void testChunkedResetKeepsIncidentsReportedAfterItsStart() throws Exception {
+        // as created by another replica, with an id from a block of the sequence it allocated before the reset started
+        createIncident("incident-late", Instant.now().plusSeconds(60), "REPORTED");
+
+        JsonObject done = awaitCompletion(resetJobs.start().getString("jobId"));
+
+        assertThat(done.getString("status"), equalTo("COMPLETED"));
+        assertThat(done.getLong("deleted"), equalTo(20L));
+        assertThat(count(), equalTo(1L));
+        assertThat(incidentId(), equalTo("incident-late"));
+    }
+
+    @Test
+    void testTruncateReset() throws Exception {
+        JsonObject job = resetJobs.start(true);
+        assertThat(job.getString("mode"), equalTo("truncate"));
+
+        JsonObject done = awaitCompletion(job.getString("jobId"));
+
+        assertThat(done.getString("status"), equalTo("COMPLETED"));
+        assertThat(count(), equalTo(0L));
+        assertThat(archivedCount(), equalTo(0L));
+    }
+
+    @Test
+    void testUnknownJob() {
+        assertThat(resetJobs.status("unknown"), nullValue());
+    }
+
+    private JsonObject awaitCompletion(String jobId) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            JsonObject job = resetJobs.status(jobId);
+            if (!"RUNNING".equals(job.getString("status"))) {
+                return job;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Reset job " + jobId + " did not complete");
+    }
+
+    @Transactional
+    long count() {
+        return entityManager.createQuery("SELECT COUNT(i) FROM Incident i", Long.class).getSingleResult();
+    }
+
+    @Transactional
+    String incidentId() {
+        return entityManager.createQuery("SELECT i.incidentId FROM Incident i", String.class).getSingleResult();
+    }
+
+    @Transactional
+    long archivedCount() {
+        return ((Number) entityManager.createNativeQuery("SELECT COUNT(*) FROM archived_incident").getSingleResult()).longValue();
+    }
+}
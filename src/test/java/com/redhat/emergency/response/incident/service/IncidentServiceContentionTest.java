@@ -0,0 +1,110 @@
+package com.redhat.emergency.response.incident.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+import com.redhat.emergency.response.incident.entity.Incident;
+import com.redhat.emergency.response.incident.repository.IncidentRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hammers a single hot incident from many threads against the test database.
+ * Every update that returns successfully must be reflected in the version of the row: no update is lost.
+ */
+@QuarkusTest
+public class IncidentServiceContentionTest {
+
+    private static final Logger log = LoggerFactory.getLogger(IncidentServiceContentionTest.class);
+
+    private static final int THREADS = 8;
+
+    private static final int UPDATES_PER_THREAD = 25;
+
+    @Inject
+    IncidentService incidentService;
+
+    @Inject
+    IncidentRepository repository;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    private String incidentId;
+
+    @BeforeEach
+    @Transactional
+    void init() {
+        entityManager.createQuery("DELETE FROM Incident").executeUpdate();
+        incidentId = incidentService.doCreate(new JsonObject().put("lat", 30.12345).put("lon", -70.98765)
+                .put("numberOfPeople", 3).put("medicalNeeded", true)
+                .put("victimName", "John Doe").put("victimPhoneNumber", "(111) 456-78990")).getString("id");
+    }
+
+    @AfterEach
+    @Transactional
+    void cleanup() {
+        entityManager.createQuery("DELETE FROM Incident").executeUpdate();
+    }
+
+    @Test
+    void testConcurrentUpdatesOnHotIncident() throws Exception {
+
+        double conflictsBefore = meterRegistry.counter("incident.service.update.conflicts").count();
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            int thread = t;
+            results.add(executor.submit((Callable<Integer>) () -> {
+                int succeeded = 0;
+                for (int i = 0; i < UPDATES_PER_THREAD; i++) {
+                    // every update carries a distinct latitude, so every successful update bumps the version
+                    double lat = new BigDecimal("30." + String.format("%02d%03d", thread, i)).doubleValue();
+                    try {
+                        incidentService.updateIncident(new JsonObject().put("id", incidentId).put("lat", lat));
+                        succeeded++;
+                    } catch (RuntimeException e) {
+                        log.debug("Update gave up after conflicting attempts", e);
+                    }
+                }
+                return succeeded;
+            }));
+        }
+        int succeeded = 0;
+        for (Future<Integer> result : results) {
+            succeeded += result.get(2, TimeUnit.MINUTES);
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        Incident incident = repository.findByIncidentId(incidentId);
+        double conflicts = meterRegistry.counter("incident.service.update.conflicts").count() - conflictsBefore;
+        int total = THREADS * UPDATES_PER_THREAD;
+        log.info(String.format("%d threads, %d updates on one incident: %d succeeded, %.0f conflicts retried, %.1f updates/s",
+                THREADS, total, succeeded, conflicts, succeeded / (elapsed / 1_000_000_000.0)));
+
+        assertThat(incident.getVersion(), equalTo((long) succeeded));
+    }
+}
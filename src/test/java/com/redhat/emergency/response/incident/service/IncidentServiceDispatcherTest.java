@@ -0,0 +1,144 @@
+package com.redhat.emergency.response.incident.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.inject.Inject;
+import javax.persistence.QueryTimeoutException;
+
+import com.redhat.emergency.response.incident.metrics.PipelineMetrics;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler.Bulkhead;
+import com.redhat.emergency.response.incident.service.IncidentPriorityScheduler.Priority;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectMock;
+import io.vertx.core.eventbus.DeliveryOptions;
+import io.vertx.core.eventbus.ReplyException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.eventbus.EventBus;
+import io.vertx.mutiny.core.eventbus.Message;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class IncidentServiceDispatcherTest {
+
+    @InjectMock
+    EventBusConsumer eventBusConsumer;
+
+    @Inject
+    IncidentServiceDispatcher dispatcher;
+
+    @Inject
+    IncidentPriorityScheduler scheduler;
+
+    @Inject
+    EventBus bus;
+
+    @Inject
+    MeterRegistry meterRegistry;
+
+    @Test
+    void testBulkheadOf() {
+        assertThat(IncidentServiceDispatcher.bulkheadOf(PipelineMetrics.Action.INCIDENT_BY_ID), equalTo(Bulkhead.POINT_READ));
+        assertThat(IncidentServiceDispatcher.bulkheadOf(PipelineMetrics.Action.INCIDENTS_BY_NAME), equalTo(Bulkhead.LIST_READ));
+        assertThat(IncidentServiceDispatcher.bulkheadOf(PipelineMetrics.Action.CREATE_INCIDENT), equalTo(Bulkhead.WRITE));
+        assertThat(IncidentServiceDispatcher.bulkheadOf(PipelineMetrics.Action.RESET), equalTo(Bulkhead.ADMIN));
+        assertThat(IncidentServiceDispatcher.bulkheadOf(PipelineMetrics.Action.RESET_STATUS), equalTo(Bulkhead.ADMIN));
+        assertThat(IncidentServiceDispatcher.bulkheadOf(PipelineMetrics.Action.UNKNOWN), equalTo(Bulkhead.POINT_READ));
+    }
+
+    @Test
+    void testRequestWithinDeadline() {
+        doAnswer(invocation -> {
+            Message<JsonObject> msg = invocation.getArgument(0);
+            msg.replyAndForget(new JsonObject());
+            return null;
+        }).when(eventBusConsumer).consume(any(Message.class));
+
+        DeliveryOptions options = new DeliveryOptions().addHeader("action", "incidentById")
+                .addHeader("deadline", Long.toString(System.currentTimeMillis() + 5000));
+        Message<JsonObject> reply = bus.<JsonObject>request("incident-service", new JsonObject(), options)
+                .await().atMost(Duration.ofSeconds(5));
+
+        assertThat(reply.body(), equalTo(new JsonObject()));
+    }
+
+    @Test
+    void testExpiredRequestIsDropped() {
+        double expired = dropped("expired");
+        DeliveryOptions options = new DeliveryOptions().addHeader("action", "incidentById")
+                .addHeader("deadline", Long.toString(System.currentTimeMillis() - 1));
+
+        Throwable failure = bus.<JsonObject>request("incident-service", new JsonObject(), options)
+                .onItem().<Throwable>transform(msg -> null)
+                .onFailure().recoverWithItem(f -> f)
+                .await().atMost(Duration.ofSeconds(5));
+
+        assertThat(failure, instanceOf(ReplyException.class));
+        assertThat(((ReplyException) failure).failureCode(), equalTo(IncidentServiceDispatcher.EXPIRED));
+        verify(eventBusConsumer, never()).consume(any(Message.class));
+        assertThat(dropped("expired"), equalTo(expired + 1));
+    }
+
+    @Test
+    void testQueryTimeoutFailsAsExpired() {
+        double timeouts = meterRegistry.get("incident.service.query.timeouts").counter().count();
+        doThrow(new QueryTimeoutException("Query timed out")).when(eventBusConsumer).consume(any(Message.class));
+        DeliveryOptions options = new DeliveryOptions().addHeader("action", "incidents")
+                .addHeader("deadline", Long.toString(System.currentTimeMillis() + 5000));
+
+        Throwable failure = bus.<JsonObject>request("incident-service", new JsonObject(), options)
+                .onItem().<Throwable>transform(msg -> null)
+                .onFailure().recoverWithItem(f -> f)
+                .await().atMost(Duration.ofSeconds(5));
+
+        assertThat(failure, instanceOf(ReplyException.class));
+        assertThat(((ReplyException) failure).failureCode(), equalTo(IncidentServiceDispatcher.EXPIRED));
+        assertThat(meterRegistry.get("incident.service.query.timeouts").counter().count(), equalTo(timeouts + 1));
+    }
+
+    @Test
+    void testCancelledRequestIsDropped() throws InterruptedException {
+        double cancelled = dropped("cancelled");
+        // the admin bulkhead has a single thread and a queue of 1 in the tests
+        CountDownLatch blocked = new CountDownLatch(1);
+        scheduler.execute(Bulkhead.ADMIN, Priority.NORMAL, () -> {
+            try {
+                blocked.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        DeliveryOptions options = new DeliveryOptions().addHeader("action", "resetStatus").addHeader("requestId", "request1");
+        bus.sendAndForget("incident-service", new JsonObject().put("jobId", "job1"), options);
+        long timeout = System.currentTimeMillis() + 5000;
+        while (meterRegistry.get("incident.bulkhead.queued").tag("bulkhead", "admin").gauge().value() < 1
+                && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+        assertThat(meterRegistry.get("incident.bulkhead.queued").tag("bulkhead", "admin").gauge().value(), equalTo(1.0));
+
+        dispatcher.cancel("request1");
+        blocked.countDown();
+        timeout = System.currentTimeMillis() + 5000;
+        while (dropped("cancelled") < cancelled + 1 && System.currentTimeMillis() < timeout) {
+            Thread.sleep(10);
+        }
+
+        assertThat(dropped("cancelled"), equalTo(cancelled + 1));
+        verify(eventBusConsumer, never()).consume(any(Message.class));
+    }
+
+    private double dropped(String reason) {
+        return meterRegistry.get("incident.service.dropped").tag("reason", reason).counter().count();
+    }
+}
@@ -6,6 +6,9 @@ import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
@@ -14,9 +17,13 @@ import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 import javax.inject.Inject;
+import javax.persistence.OptimisticLockException;
 
 import com.redhat.emergency.response.incident.entity.Incident;
+import com.redhat.emergency.response.incident.model.IncidentView;
+import com.redhat.emergency.response.incident.repository.IncidentReadRepository;
 import com.redhat.emergency.response.incident.repository.IncidentRepository;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
@@ -34,6 +41,12 @@ public class IncidentServiceTest {
     @InjectMock
     IncidentRepository repository;
 
+    @InjectMock
+    IncidentReadRepository readRepository;
+
+    @InjectMock
+    RecentIncidentWrites recentWrites;
+
     @Inject
     IncidentService incidentService;
 
@@ -81,7 +94,7 @@ public class IncidentServiceTest {
         incident3.setReportedTime(Instant.now());
         incident3.setStatus("RESCUED");
 
-        when(repository.findAll()).thenReturn(Arrays.asList(incident1, incident2, incident3));
+        when(readRepository.findAll()).thenReturn(Arrays.asList(view(incident1), view(incident2), view(incident3)));
 
         JsonArray incidents = incidentService.incidents();
 
@@ -219,6 +232,74 @@ public class IncidentServiceTest {
         assertThat(incidentEntity.getLongitude(), equalTo("-72.98765"));
         assertThat(incidentEntity.getStatus(), equalTo("ASSIGNED"));
         verify(repository).findByIncidentId("incident2");
+        verify(recentWrites).record("incident2");
+    }
+
+    @Test
+    void testUpdateIncidentConflictIsRetried() {
+
+        Incident incidentEntity = new Incident();
+        incidentEntity.setIncidentId("incident2");
+        incidentEntity.setLatitude("31.12345");
+        incidentEntity.setLongitude("-71.98765");
+        incidentEntity.setNumberOfPeople(4);
+        incidentEntity.setMedicalNeeded(true);
+        incidentEntity.setVictimName("John Doe");
+        incidentEntity.setVictimPhoneNumber("(211) 456-78990");
+        incidentEntity.setReportedTime(Instant.now());
+        incidentEntity.setStatus("REPORTED");
+
+        when(repository.findByIncidentId("incident2"))
+                .thenThrow(new OptimisticLockException())
+                .thenThrow(new RuntimeException(new OptimisticLockException()))
+                .thenReturn(incidentEntity);
+
+        JsonObject incident = new JsonObject().put("id", "incident2").put("status", "ASSIGNED");
+
+        JsonObject updated = incidentService.updateIncident(incident);
+        assertThat(updated, notNullValue());
+        assertThat(updated.getString("status"), equalTo("ASSIGNED"));
+        assertThat(incidentEntity.getStatus(), equalTo("ASSIGNED"));
+        verify(repository, times(3)).findByIncidentId("incident2");
+    }
+
+    @Test
+    void testUpdateIncidentConflictRetryExhausted() {
+
+        when(repository.findByIncidentId("incident2")).thenThrow(new OptimisticLockException());
+
+        JsonObject incident = new JsonObject().put("id", "incident2").put("status", "ASSIGNED");
+
+        assertThrows(RuntimeException.class, () -> incidentService.updateIncident(incident));
+        verify(repository, times(5)).findByIncidentId("incident2");
+    }
+
+    @Test
+    void testUpdateIncidentConflictRetryInterrupted() {
+
+        when(repository.findByIncidentId("incident2")).thenThrow(new OptimisticLockException());
+
+        JsonObject incident = new JsonObject().put("id", "incident2").put("status", "ASSIGNED");
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(RuntimeException.class, () -> incidentService.updateIncident(incident));
+            assertThat(Thread.currentThread().isInterrupted(), equalTo(true));
+            verify(repository).findByIncidentId("incident2");
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void testUpdateIncidentOtherFailureIsNotRetried() {
+
+        when(repository.findByIncidentId("incident2")).thenThrow(new IllegalStateException());
+
+        JsonObject incident = new JsonObject().put("id", "incident2").put("status", "ASSIGNED");
+
+        assertThrows(RuntimeException.class, () -> incidentService.updateIncident(incident));
+        verify(repository).findByIncidentId("incident2");
     }
 
     @Test
@@ -234,7 +315,7 @@ public class IncidentServiceTest {
         incidentEntity.setReportedTime(Instant.now());
         incidentEntity.setStatus("REPORTED");
 
-        when(repository.findByIncidentId("incident2")).thenReturn(incidentEntity);
+        when(readRepository.findByIncidentId("incident2")).thenReturn(incidentEntity);
 
         JsonObject found = incidentService.incidentByIncidentId("incident2");
 
@@ -248,19 +329,43 @@ public class IncidentServiceTest {
         assertThat(found.getString("victimPhoneNumber"), equalTo(incidentEntity.getVictimPhoneNumber()));
         assertThat(found.getLong("timestamp"), equalTo(incidentEntity.getTimestamp()));
         assertThat(found.getString("status"), equalTo(incidentEntity.getStatus()));
-        verify(repository).findByIncidentId("incident2");
+        verify(readRepository).findByIncidentId("incident2");
     }
 
 
+    @Test
+    void testIncidentByIdRecentlyWritten() {
+        Incident incidentEntity = new Incident();
+        incidentEntity.setIncidentId("incident2");
+        incidentEntity.setLatitude("31.12345");
+        incidentEntity.setLongitude("-71.98765");
+        incidentEntity.setNumberOfPeople(4);
+        incidentEntity.setMedicalNeeded(true);
+        incidentEntity.setVictimName("John Doe");
+        incidentEntity.setVictimPhoneNumber("(211) 456-78990");
+        incidentEntity.setReportedTime(Instant.now());
+        incidentEntity.setStatus("ASSIGNED");
+
+        when(recentWrites.isRecent("incident2")).thenReturn(true);
+        when(repository.findByIncidentId("incident2")).thenReturn(incidentEntity);
+
+        JsonObject found = incidentService.incidentByIncidentId("incident2");
+
+        assertThat(found, notNullValue());
+        assertThat(found.getString("status"), equalTo("ASSIGNED"));
+        verify(repository).findByIncidentId("incident2");
+        verify(readRepository, never()).findByIncidentId("incident2");
+    }
+
     @Test
     void testIncidentByIdNotFound() {
 
-        when(repository.findByIncidentId("incident2")).thenReturn(null);
+        when(readRepository.findByIncidentId("incident2")).thenReturn(null);
 
         JsonObject found = incidentService.incidentByIncidentId("incident2");
 
         assertThat(found, nullValue());
-        verify(repository).findByIncidentId("incident2");
+        verify(readRepository).findByIncidentId("incident2");
     }
 
     @Test
@@ -288,7 +393,7 @@ public class IncidentServiceTest {
         incidentEntity2.setReportedTime(Instant.now());
         incidentEntity2.setStatus("REPORTED");
 
-        when(repository.findByStatus("REPORTED")).thenReturn(Arrays.asList(incidentEntity, incidentEntity2));
+        when(readRepository.findByStatus("REPORTED")).thenReturn(Arrays.asList(view(incidentEntity), view(incidentEntity2)));
 
         JsonArray incidents = incidentService.incidentsByStatus("REPORTED");
 
@@ -307,20 +412,20 @@ public class IncidentServiceTest {
         assertThat(found.getString("victimPhoneNumber"), equalTo(incidentEntity2.getVictimPhoneNumber()));
         assertThat(found.getLong("timestamp"), equalTo(incidentEntity2.getTimestamp()));
         assertThat(found.getString("status"), equalTo(incidentEntity2.getStatus()));
-        verify(repository).findByStatus("REPORTED");
+        verify(readRepository).findByStatus("REPORTED");
     }
 
     @Test
     void testIncidentByStatusNotFound() {
 
-        when(repository.findByStatus("REPORTED")).thenReturn(Collections.emptyList());
+        when(readRepository.findByStatus("REPORTED")).thenReturn(Collections.emptyList());
 
         JsonArray incidents = incidentService.incidentsByStatus("REPORTED");
 
         assertThat(incidents, notNullValue());
         assertThat(incidents.size(), equalTo(0));
 
-        verify(repository).findByStatus("REPORTED");
+        verify(readRepository).findByStatus("REPORTED");
     }
 
     @Test
@@ -348,7 +453,7 @@ public class IncidentServiceTest {
         incidentEntity2.setReportedTime(Instant.now());
         incidentEntity2.setStatus("REPORTED");
 
-        when(repository.findByName("John%")).thenReturn(Arrays.asList(incidentEntity, incidentEntity2));
+        when(readRepository.findByName("John%")).thenReturn(Arrays.asList(view(incidentEntity), view(incidentEntity2)));
 
         JsonArray incidents = incidentService.incidentsByVictimName("John%");
 
@@ -368,27 +473,44 @@ public class IncidentServiceTest {
         assertThat(found.getLong("timestamp"), equalTo(incidentEntity2.getTimestamp()));
         assertThat(found.getString("status"), equalTo(incidentEntity2.getStatus()));
 
-        verify(repository).findByName("John%");
+        verify(readRepository).findByName("John%");
     }
 
     @Test
     void testIncidentByVictimNameNotFound() {
 
-        when(repository.findByName("John%")).thenReturn(Collections.emptyList());
+        when(readRepository.findByName("John%")).thenReturn(Collections.emptyList());
 
         JsonArray incidents = incidentService.incidentsByVictimName("John%");
 
         assertThat(incidents, notNullValue());
         assertThat(incidents.size(), equalTo(0));
-        verify(repository).findByName("John%");
+        verify(readRepository).findByName("John%");
     }
 
     @Test
-    void testReset() {
+    void testResetChunk() {
+
+        Instant before = Instant.now();
+        when(repository.deleteReportedBefore(0, before, 10)).thenReturn(Arrays.asList(1L, 2L));
+
+        List<Long> deleted = incidentService.resetChunk(0, before, 10);
+
+        assertThat(deleted, equalTo(Arrays.asList(1L, 2L)));
+        verify(repository).deleteReportedBefore(0, before, 10);
+    }
 
-        incidentService.reset();
+    @Test
+    void testTruncate() {
+
+        incidentService.truncate();
+
+        verify(repository).truncate();
+    }
 
-        verify(repository).deleteAll();
+    private IncidentView view(Incident incident) {
+        return new IncidentView(incident.getIncidentId(), incident.getLatitude(), incident.getLongitude(), incident.getNumberOfPeople(),
+                incident.isMedicalNeeded(), incident.getVictimName(), incident.getVictimPhoneNumber(), incident.getReportedTime(), incident.getStatus());
     }
 
 
@@ -0,0 +1,44 @@
+package com.redhat.emergency.response.incident.service;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.notNullValue;
+
+import javax.inject.Inject;
+
+import io.quarkus.test.junit.QuarkusTest;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+@QuarkusTest
+public class IncidentWarmupTest {
+
+    @Inject
+    IncidentWarmup warmup;
+
+    @Inject
+    IncidentService service;
+
+    @Test
+    void testWarmUp() throws Exception {
+        int incidents = service.incidents().size();
+
+        JsonObject report = warmup.warmUp();
+
+        assertThat(report.getInteger("rounds"), greaterThanOrEqualTo(2));
+        assertThat(report.getLong("durationMs"), greaterThan(0L));
+        for (String operation : new String[]{"create", "update", "read", "message"}) {
+            assertThat(operation, report.getJsonObject("operations").getJsonObject(operation), notNullValue());
+        }
+        assertThat(report.getJsonObject("operations").getJsonObject("create").getLong("firstRoundMicros"), greaterThan(0L));
+        // the writes are rolled back
+        assertThat(service.incidents().size(), equalTo(incidents));
+
+        given().when().get("/health/ready").then().assertThat()
+                .body("checks.find { it.name == 'Warm-up' }.status", equalTo("UP"))
+                .body("checks.find { it.name == 'Warm-up' }.data.rounds", equalTo(report.getInteger("rounds")));
+    }
+}
@@ -0,0 +1,32 @@
+package com.redhat.emergency.response.incident.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+import org.junit.jupiter.api.Test;
+
+public class RecentIncidentWritesTest {
+
+    @Test
+    void testRecentWrite() {
+        RecentIncidentWrites writes = new RecentIncidentWrites();
+        writes.staleness = 60000;
+
+        writes.record("incident1");
+
+        assertThat(writes.isRecent("incident1"), equalTo(true));
+        assertThat(writes.isRecent("incident2"), equalTo(false));
+        assertThat(writes.isRecent(null), equalTo(false));
+    }
+
+    @Test
+    void testWriteExpires() throws Exception {
+        RecentIncidentWrites writes = new RecentIncidentWrites();
+        writes.staleness = 10;
+
+        writes.record("incident1");
+        Thread.sleep(50);
+
+        assertThat(writes.isRecent("incident1"), equalTo(false));
+    }
+}
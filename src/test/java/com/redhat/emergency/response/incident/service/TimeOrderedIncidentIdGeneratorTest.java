@@ -0,0 +1,67 @@
+package com.redhat.emergency.response.incident.service;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+public class TimeOrderedIncidentIdGeneratorTest {
+
+    private final TimeOrderedIncidentIdGenerator generator = new TimeOrderedIncidentIdGenerator();
+
+    @Test
+    void testVersionAndVariant() {
+        long before = System.currentTimeMillis();
+        UUID uuid = UUID.fromString(generator.nextId());
+
+        assertThat(uuid.version(), equalTo(7));
+        assertThat(uuid.variant(), equalTo(2));
+        long millis = uuid.getMostSignificantBits() >>> 16;
+        assertThat(millis, greaterThan(before - 1));
+        assertThat(millis, lessThanOrEqualTo(System.currentTimeMillis()));
+    }
+
+    @Test
+    void testMonotonic() {
+        String previous = generator.nextId();
+        for (int i = 0; i < 100_000; i++) {
+            String next = generator.nextId();
+            assertThat(next.compareTo(previous), greaterThan(0));
+            previous = next;
+        }
+    }
+
+    @Test
+    void testUniqueAcrossThreads() throws Exception {
+        int threads = 8;
+        int perThread = 50_000;
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    ids.add(generator.nextId());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertThat(ids.size(), equalTo(threads * perThread));
+    }
+}